@@ -1,15 +1,33 @@
 package com.tm.online;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 import com.tm.bootstrap.NettyClientBootstrap;
 import com.tm.bootstrap.NettyServerBootstrap;
 import com.tm.db.app.vo.ChannelVO;
+import com.tm.db.app.vo.TelegramVO;
 import com.tm.logging.LoggingFormat;
+import com.tm.online.message.MessageConvert;
+import com.tm.utils.JsonUtil;
+import com.tm.utils.TextUtil;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.Future;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -28,48 +46,301 @@ public class OnlineClient {
 	/** 채널 정보 객체 **/
 	private final ChannelVO channelVO;
 	
+	/** 리스너 오픈 전 준비되어야 할 송신 세션 비율(0: 대기 안함, 1: 전체 세션) */
+	@Setter
+	private double sessionQuorum = 0;
+	
+	/** 송신 세션 준비 최대 대기 시간(ms, 0 이하: 무제한) */
+	@Setter
+	private long sessionWaitMillis = 10000;
+	
+	/** 보스 이벤트루프 그룹 */
+	private EventLoopGroup bossGroup;
+	
+	/** 워커 이벤트루프 그룹 */
+	private EventLoopGroup workerGroup;
+	
+	/** 상태 확인이 완료된 송신 세션 수 */
+	@Getter
+	private int readySessionCnt;
+	
+	/** 송신 세션 접속 소요 시간(ms) */
+	@Getter
+	private long connectMillis;
+	
+	/** 변환 코드 예열 소요 시간(ms) */
+	@Getter
+	private long warmupMillis;
+	
+	/** 리스너 바인딩 소요 시간(ms) */
+	@Getter
+	private long bindMillis;
+	
 	/**
 	 * 온라인 Proxy 동작 
 	 * @throws Exception 오류 
 	 */
 	public void start() throws Exception {
-		EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-		EventLoopGroup workerGroup = new NioEventLoopGroup(channelVO.getSsnCnt() * 2);
 		try {
+			open().get().closeFuture().sync();
+		} catch (InterruptedException e) {
+			log.info("[Channel: {}] Shutting down online server.", channelVO.getChnlId());
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		} catch (Exception e) {
+			throw e;
+		} finally {
+			close();
+		}
+	}
+	
+	/**
+	 * 송신 세션 접속 및 예열 후 리스너 오픈(호출 스레드를 대기시키지 않음)
+	 * <p>송신 세션 정족수 충족(또는 최대 대기 시간 경과) 후 보스 이벤트루프에서 예열 및 바인딩을 진행합니다.</p>
+	 * @return 리스너 바인딩 완료 시 리스너 채널로 완료되는 future
+	 */
+	public CompletableFuture<Channel> open() {
+		final CompletableFuture<Channel> result = new CompletableFuture<>();
+		try {
+			bossGroup = new NioEventLoopGroup(1);
+			workerGroup = new NioEventLoopGroup(channelVO.getSsnCnt() * 2);
+			final OnlineClientConfig config = OnlineClientConfig.init(channelVO);
+			OnlineClientOffload.init(channelVO);
+			OnlineClientFlightRecorder.init(channelVO);
 			
+			final long time = System.nanoTime();
+			CompletableFuture<Integer> sessions = CompletableFuture.completedFuture(0);
 			if("tcp".equals(channelVO.getRemotePrtcl())) {
-				NettyClientBootstrap client = new NettyClientBootstrap();
-				client.setWorkerGroup(workerGroup);
-				client.setChannelVO(channelVO);
 				//송신 채널 
 				for(int i=1; i<=channelVO.getSsnCnt(); i++) {
-					client.init(i).connect(channelVO.getRemoteIp(), channelVO.getRemotePort()).addListener(new ChannelFutureListener() {
-						@Override
-						public void operationComplete(ChannelFuture future) throws Exception {
-							if (! future.isSuccess()) {
-								if (future.cause() != null) {
-									log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "CONNECT FAIL", future.cause()));
-								}
-							}
-						}
-					});
+					config.ready(i);
+					connect(channelVO, i);
 				}
+				sessions = await(config);
 			}
+			sessions.thenAcceptAsync(new Consumer<Integer>() {
+				@Override
+				public void accept(Integer cnt) {
+					readySessionCnt = cnt;
+					connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time);
+					bind(config, result);
+				}
+			}, bossGroup).exceptionally(new Function<Throwable, Void>() {
+				@Override
+				public Void apply(Throwable e) {
+					//기동 중 종료로 보스 이벤트루프가 작업을 거절한 경우
+					result.completeExceptionally(e);
+					return null;
+				}
+			});
+		} catch (Throwable e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+	
+	/**
+	 * 변환 코드 예열 후 리스너 바인딩(보스 이벤트루프에서 동작)
+	 * @param config 채널 설정
+	 * @param result 리스너 바인딩 완료 시 완료할 future
+	 */
+	private void bind(OnlineClientConfig config, final CompletableFuture<Channel> result) {
+		try {
+			long time = System.nanoTime();
+			warmup(config.current());
+			warmupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time);
+			
+			final long bindTime = System.nanoTime();
 			NettyServerBootstrap server = new NettyServerBootstrap();
 			server.setBossGroup(bossGroup);
 			server.setWorkerGroup(workerGroup);
 			server.setChannelVO(channelVO);
 			
-			final ChannelFuture f = server.init().bind(channelVO.getLocalPort()).sync();
-			log.info( "[Channel: {}] Binding on port: {}", channelVO.getChnlId(), channelVO.getLocalPort());
-			f.channel().closeFuture().sync();
-		} catch (InterruptedException e) {
-			log.info("[Channel: {}] Shutting down online server.", channelVO.getChnlId());
-		} catch (Exception e) {
-			throw e;
-		} finally {
+			server.init().bind(channelVO.getLocalPort()).addListener(new ChannelFutureListener() {
+				@Override
+				public void operationComplete(ChannelFuture f) throws Exception {
+					if (!f.isSuccess()) {
+						result.completeExceptionally(f.cause());
+						return;
+					}
+					bindMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - bindTime);
+					log.info( "[Channel: {}] Binding on port: {}", channelVO.getChnlId(), channelVO.getLocalPort());
+					log.info("[Channel: {}] STARTUP sessions: {}/{}, connect: {}ms, warmup: {}ms, bind: {}ms", channelVO.getChnlId(), readySessionCnt, channelVO.getSsnCnt(), connectMillis, warmupMillis, bindMillis);
+					result.complete(f.channel());
+				}
+			});
+		} catch (Throwable e) {
+			result.completeExceptionally(e);
+		}
+	}
+	
+	/**
+	 * 이벤트루프 그룹 및 채널 자원 해제
+	 * <p>송수신 기록 링버퍼는 이벤트루프 그룹과 실행기가 모두 종료된 뒤 해제합니다.</p>
+	 */
+	public void close() {
+		List<Future<?>> terminations = new ArrayList<>();
+		if (workerGroup != null) {
 			workerGroup.shutdownGracefully();
+			terminations.add(workerGroup.terminationFuture());
+		}
+		if (bossGroup != null) {
 			bossGroup.shutdownGracefully();
+			terminations.add(bossGroup.terminationFuture());
 		}
+		OnlineClientOffload offload = OnlineClientOffload.remove(channelVO);
+		if (offload != null) {
+			terminations.addAll(offload.terminationFutures());
+		}
+		//재기동 시 이전 응답시간/한도/대기열을 이어받지 않도록 제어 객체 삭제
+		OnlineClientAdaptiveController.remove(channelVO);
+		OnlineClientConfig.remove(channelVO);
+		OnlineClientFlightRecorder recorder = OnlineClientFlightRecorder.remove(channelVO);
+		if (recorder != null) {
+			recorder.release(terminations);
+		}
+	}
+	
+	/**
+	 * 송신 세션 상태 확인 대기(호출 스레드를 대기시키지 않음)
+	 * <p>idle 사용 채널은 idle 전문 응답 수신, 미사용 채널은 접속 완료 시 상태 확인이 완료됩니다.</p>
+	 * @param config 채널 설정
+	 * @return 정족수 충족 또는 최대 대기 시간 경과 시 상태 확인이 완료된 송신 세션 수로 완료되는 future
+	 */
+	private CompletableFuture<Integer> await(final OnlineClientConfig config) {
+		final int quorum = (int) Math.ceil(channelVO.getSsnCnt() * Math.min(Math.max(sessionQuorum, 0), 1));
+		final CompletableFuture<Integer> future = new CompletableFuture<>();
+		if (quorum == 0) {
+			future.complete(ready(config));
+			return future;
+		}
+		final AtomicInteger remain = new AtomicInteger(quorum);
+		for(int i=1; i<=channelVO.getSsnCnt(); i++) {
+			config.ready(i).thenRun(new Runnable() {
+				@Override
+				public void run() {
+					if (remain.decrementAndGet() == 0) {
+						future.complete(ready(config));
+					}
+				}
+			});
+		}
+		if (sessionWaitMillis > 0) {
+			workerGroup.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (future.complete(ready(config))) {
+						log.error("[Channel: {}] SESSION QUORUM NOT REACHED: {}/{}", channelVO.getChnlId(), ready(config), quorum);
+					}
+				}
+			}, sessionWaitMillis, TimeUnit.MILLISECONDS);
+		}
+		return future;
+	}
+	
+	/**
+	 * 상태 확인이 완료된 송신 세션 수 조회
+	 * @param config 채널 설정
+	 * @return 송신 세션 수
+	 */
+	private int ready(OnlineClientConfig config) {
+		int cnt = 0;
+		for(int i=1; i<=channelVO.getSsnCnt(); i++) {
+			if (config.ready(i).isDone()) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+	
+	/**
+	 * 전문 레이아웃별 변환 코드 예열
+	 * <p>기본값으로 구성한 전문을 변환하여 최초 거래 시 클래스 로딩 및 JIT 지연을 줄입니다. 예열 실패는 기동에 영향을 주지 않습니다.</p>
+	 * @param snapshot 채널 설정 스냅샷
+	 */
+	private void warmup(OnlineClientConfig.Snapshot snapshot) {
+		for (Map.Entry<String, OnlineClientConfig.Layout> entry : snapshot.getLayouts().entrySet()) {
+			String tlgrmId = entry.getValue().getTlgrmId();
+			try {
+				StringBuilder sb = new StringBuilder();
+				for (TelegramVO vo : entry.getValue().getFields()) {
+					sb.append(TextUtil.pad(vo.getFieldType(), (String) vo.getDefVal(), vo.getFieldLen(), channelVO.getRemoteCharset()));
+				}
+				byte[] bytearray = TextUtil.concat(TextUtil.padLeft(sb.toString().getBytes(channelVO.getRemoteCharset()).length, channelVO.getDataPfxLen(), channelVO.getRemoteCharset()), sb.toString()).getBytes(channelVO.getRemoteCharset());
+				String json = JsonUtil.convertPojoToJson(MessageConvert.messageToJson(channelVO.getChnlId(), tlgrmId, bytearray, channelVO.getDataPfxLen(), channelVO.getRemoteCharset()));
+				MessageConvert.jsonToMessageCombine(channelVO.getChnlId(), tlgrmId, JsonUtil.convertJsonToLinkedHashMap(json), channelVO.getDataPfxLen(), channelVO.getRemoteCharset());
+			} catch (Exception e) {
+				log.debug("[Channel: {}] WARMUP SKIP {}: {}", channelVO.getChnlId(), tlgrmId, e.toString());
+			}
+		}
+	}
+	
+	/**
+	 * 리스너 재시작 없이 채널 정보 재적재
+	 * 
+	 * <p>처리중인 메시지는 송신 시점 버전의 채널 정보(전문 키 위치, 재송신 횟수, 문자셋)로 응답 해석 및 재송신을 완료하며,
+	 * 전문 레이아웃 변경은 ConstantFactory 재적재 시점에 즉시 반영됩니다.
+	 * 타임아웃/송신 한도 제어 객체는 교체 없이 학습된 응답시간과 송신중 건수를 유지한 채 기준값만 변경합니다. 세션 수(ssnCnt) 변경 시 송신 세션을 추가 접속하거나
+	 * 신규 송신을 중지한 뒤 응답 대기시간 경과 후 종료합니다. 로컬 포트 및 프로토콜 변경은 재시작이 필요합니다.</p>
+	 * @param newChannelVO 새 채널 정보 객체
+	 */
+	public void reload(ChannelVO newChannelVO) {
+		OnlineClientConfig config = OnlineClientConfig.get(channelVO.getChnlId());
+		if (config == null || workerGroup == null) {
+			log.error("[Channel: {}] CONFIG RELOAD FAIL: not started", channelVO.getChnlId());
+			return;
+		}
+		final ChannelVO oldChannelVO = config.current().getChannelVO();
+		if (oldChannelVO.getLocalPort() != newChannelVO.getLocalPort()
+				|| !oldChannelVO.getLocalPrtcl().equals(newChannelVO.getLocalPrtcl())
+				|| !oldChannelVO.getRemotePrtcl().equals(newChannelVO.getRemotePrtcl())) {
+			log.error("[Channel: {}] CONFIG RELOAD FAIL: port or protocol change requires restart", channelVO.getChnlId());
+			return;
+		}
+		config.reload(newChannelVO);
+		//타임아웃 및 송신 한도 기준만 변경(송신중 건수 유지)
+		OnlineClientAdaptiveController.reload(newChannelVO);
+		
+		if("tcp".equals(newChannelVO.getRemotePrtcl())) {
+			//세션 추가
+			for(int i=oldChannelVO.getSsnCnt()+1; i<=newChannelVO.getSsnCnt(); i++) {
+				connect(newChannelVO, i);
+			}
+			//세션 축소(신규 송신 중지 후 응답 대기시간 경과 후 종료)
+			long drainDelay = (long) oldChannelVO.getRcvTimeout() * (oldChannelVO.getReTryCnt() + 1);
+			for(int i=newChannelVO.getSsnCnt()+1; i<=oldChannelVO.getSsnCnt(); i++) {
+				ChannelManager.removeSndChannelMap(channelVO.getChnlId(), i);
+				final Channel channel = config.getSession(i);
+				if (channel != null) {
+					channel.eventLoop().schedule(new Runnable() {
+						@Override
+						public void run() {
+							channel.close();
+						}
+					}, drainDelay, TimeUnit.SECONDS);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 송신 세션 접속
+	 * @param channelVO 채널 정보 객체
+	 * @param chnlSeq 채널 순번
+	 */
+	private void connect(final ChannelVO channelVO, int chnlSeq) {
+		NettyClientBootstrap client = new NettyClientBootstrap();
+		client.setWorkerGroup(workerGroup);
+		client.setChannelVO(channelVO);
+		client.init(chnlSeq).connect(channelVO.getRemoteIp(), channelVO.getRemotePort()).addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+				if (! future.isSuccess()) {
+					if (future.cause() != null) {
+						log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "CONNECT FAIL", future.cause()));
+					}
+				}
+			}
+		});
 	}
 }
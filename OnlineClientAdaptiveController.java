@@ -0,0 +1,427 @@
+package com.tm.online;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.tm.db.app.vo.ChannelVO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 목적지별 응답시간 기반 재송신 타임아웃 및 동시 송신 건수 제어 모듈
+ *
+ * <p>응답시간 표본으로 SRTT/RTTVAR 와 백분위(p50, p99)를 추적하여 재송신 타임아웃(RTO)을 산출하고,
+ * 응답시간 증가 또는 타임아웃 발생 시 동시 송신 한도를 줄이는 AIMD 방식으로 송신 건수를 제한합니다.
+ * 응답시간 증가는 개별 응답이 아닌 측정 구간(SRTT 이상, 최소 표본 건수) 평균을 장기 기준 응답시간과 비교하여 판단하며,
+ * 한도 감소는 측정 구간당 최대 1회만 적용합니다. 한도를 넘는 송신은 대기열에 보관 후 한도가 생기면 순서대로 재개합니다.</p>
+ *
+ * <p>채널의 목적지는 하나이므로 제어 객체는 채널아이디로 관리하며, 재적재 시 객체를 교체하지 않고 기준값만 변경합니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ * @see com.tm.online.OnlineClientTimeoutHandler
+ */
+@Slf4j
+public class OnlineClientAdaptiveController {
+	/** 목적지별 제어 객체(채널아이디, 제어 객체) */
+	private static final ConcurrentHashMap<String, OnlineClientAdaptiveController> controllerMap = new ConcurrentHashMap<>();
+
+	/** 최소 재송신 타임아웃(ms) */
+	private static final long MIN_RTO_MILLIS = 200;
+	/** 응답시간 표본 저장 건수 */
+	private static final int SAMPLE_SIZE = 128;
+	/** 백분위 재계산 주기(표본 건수) */
+	private static final int PERCENTILE_INTERVAL = 32;
+	/** 최소 동시 송신 한도 */
+	private static final int MIN_LIMIT = 1;
+	/** 세션당 최대 동시 송신 한도 */
+	private static final int MAX_LIMIT_PER_SESSION = 256;
+	/** 응답시간 증가 판단 배수(기준 응답시간 대비) */
+	private static final double LATENCY_TOLERANCE = 2.0;
+	/** 측정 구간 최소 표본 건수 */
+	private static final int WINDOW_MIN_SAMPLES = 8;
+	/** 기준 응답시간 반영 가중치(측정 구간 평균의 1/N 반영) */
+	private static final int BASELINE_WEIGHT = 16;
+	/** 응답시간 증가 시 한도 감소 비율 */
+	private static final double LATENCY_BACKOFF = 0.9;
+	/** 타임아웃 시 한도 감소 비율 */
+	private static final double TIMEOUT_BACKOFF = 0.5;
+
+	/** 채널아이디 */
+	private final String chnlId;
+	/** 목적지 주소 */
+	private String remote;
+	/** 최소 재송신 타임아웃(ns) */
+	private long minRto;
+	/** 최대 재송신 타임아웃(ns) */
+	private long maxRto;
+	/** 최대 동시 송신 한도 */
+	private int maxLimit;
+
+	/** 평활 응답시간(ns) */
+	private long srtt;
+	/** 응답시간 편차(ns) */
+	private long rttvar;
+	/** 재송신 타임아웃(ns) */
+	private long rto;
+	/** 응답시간 표본 */
+	private final long[] samples = new long[SAMPLE_SIZE];
+	/** 누적 표본 건수 */
+	private long sampleCnt;
+	/** 응답시간 p50(ns) */
+	private long p50;
+	/** 응답시간 p99(ns) */
+	private long p99;
+	/** 동시 송신 한도 */
+	private double limit;
+	/** 송신중 건수 */
+	private int inflight;
+	/** 측정 구간 시작 시각(ns) */
+	private long windowStart;
+	/** 측정 구간 응답시간 합계(ns) */
+	private long windowSum;
+	/** 측정 구간 표본 건수 */
+	private int windowCnt;
+	/** 장기 기준 응답시간(ns, 측정 구간 평균의 EWMA) */
+	private long baseline;
+	/** 최근 한도 감소 시각(ns) */
+	private long lastBackoff;
+	/** 송신 한도 대기열 */
+	private final ArrayDeque<Runnable> waiters = new ArrayDeque<>();
+
+	/**
+	 * 송신 한도 확보 결과
+	 */
+	public enum Acquire {
+		/** 확보 */
+		ACQUIRED,
+		/** 대기열 보관 */
+		HELD,
+		/** 대기열 초과 */
+		REJECTED
+	}
+
+	/**
+	 * 생성자
+	 * @param channelVO 채널 정보 객체
+	 */
+	private OnlineClientAdaptiveController(ChannelVO channelVO) {
+		this.chnlId = channelVO.getChnlId();
+		this.remote = remote(channelVO);
+		bounds(channelVO);
+		//표본이 없을 때는 기존 고정 타임아웃으로 동작
+		this.rto = maxRto;
+		this.limit = maxLimit;
+	}
+
+	/**
+	 * 목적지별 제어 객체 조회(없을 시 생성)
+	 * @param channelVO 채널 정보 객체
+	 * @return 제어 객체
+	 */
+	public static OnlineClientAdaptiveController get(ChannelVO channelVO) {
+		return controllerMap.computeIfAbsent(channelVO.getChnlId(), k -> new OnlineClientAdaptiveController(channelVO));
+	}
+
+	/**
+	 * 목적지별 제어 객체 삭제
+	 * @param channelVO 채널 정보 객체
+	 */
+	public static void remove(ChannelVO channelVO) {
+		controllerMap.remove(channelVO.getChnlId());
+	}
+
+	/**
+	 * 채널 정보 재적재 시 기준값 변경
+	 * <p>제어 객체를 교체하지 않으므로 학습된 응답시간과 송신중 건수, 대기열은 유지됩니다. 목적지 주소가 바뀐 경우 응답시간 표본만 초기화합니다.</p>
+	 * @param newChannelVO 새 채널 정보 객체
+	 */
+	public static void reload(ChannelVO newChannelVO) {
+		OnlineClientAdaptiveController controller = controllerMap.get(newChannelVO.getChnlId());
+		if (controller == null) {
+			return;
+		}
+		List<Runnable> granted;
+		synchronized (controller) {
+			controller.bounds(newChannelVO);
+			String remote = remote(newChannelVO);
+			if (!Objects.equals(controller.remote, remote)) {
+				controller.remote = remote;
+				controller.reset();
+			}
+			controller.rto = controller.bound(controller.rto);
+			controller.limit = Math.min(controller.limit, controller.maxLimit);
+			granted = controller.grant();
+		}
+		wake(granted);
+	}
+
+	/**
+	 * 목적지 주소 생성
+	 * @param channelVO 채널 정보 객체
+	 * @return 목적지 주소
+	 */
+	private static String remote(ChannelVO channelVO) {
+		return channelVO.getRemoteIp() + ":" + channelVO.getRemotePort();
+	}
+
+	/**
+	 * 송신 한도 확보(한도 초과 시 대기열 보관, 한도 확보 시 대기 객체 실행)
+	 * @param waiter 대기 객체(한도 확보 시 송신중 건수가 증가된 상태로 실행)
+	 * @return 확보 결과
+	 */
+	public synchronized Acquire acquire(Runnable waiter) {
+		if (inflight < (int) limit && waiters.isEmpty()) {
+			inflight++;
+			return Acquire.ACQUIRED;
+		}
+		if (waiters.size() < maxLimit) {
+			waiters.add(waiter);
+			return Acquire.HELD;
+		}
+		return Acquire.REJECTED;
+	}
+
+	/**
+	 * 대기열 보관 취소
+	 * @param waiter 대기 객체
+	 * @return 취소 여부(이미 한도가 할당된 경우 false)
+	 */
+	public synchronized boolean cancel(Runnable waiter) {
+		return waiters.remove(waiter);
+	}
+
+	/**
+	 * 송신중 건수 감소
+	 */
+	public void release() {
+		List<Runnable> granted;
+		synchronized (this) {
+			if (inflight > 0) {
+				inflight--;
+			}
+			granted = grant();
+		}
+		wake(granted);
+	}
+
+	/**
+	 * 응답 수신 시 응답시간 반영
+	 * @param rttNanos 응답시간(ns)
+	 */
+	public void onResponse(long rttNanos) {
+		List<Runnable> granted;
+		synchronized (this) {
+			if (inflight > 0) {
+				inflight--;
+			}
+			if (rttNanos > 0) {
+				sample(rttNanos);
+			}
+			granted = grant();
+		}
+		wake(granted);
+	}
+
+	/**
+	 * 응답시간 표본 반영
+	 * @param rttNanos 응답시간(ns)
+	 */
+	private void sample(long rttNanos) {
+		//RFC 6298 SRTT/RTTVAR 갱신
+		if (sampleCnt == 0) {
+			srtt = rttNanos;
+			rttvar = rttNanos / 2;
+		} else {
+			rttvar = (3 * rttvar + Math.abs(srtt - rttNanos)) / 4;
+			srtt = (7 * srtt + rttNanos) / 8;
+		}
+		samples[(int) (sampleCnt % SAMPLE_SIZE)] = rttNanos;
+		sampleCnt++;
+		if (sampleCnt == 1 || sampleCnt % PERCENTILE_INTERVAL == 0) {
+			percentile();
+		}
+		rto = bound(Math.max(srtt + 4 * rttvar, p99));
+
+		//측정 구간 평균이 기준 응답시간을 크게 넘으면 곱셈 감소(구간당 1회)
+		long now = System.nanoTime();
+		if (windowCnt == 0) {
+			windowStart = now;
+		}
+		windowSum += rttNanos;
+		windowCnt++;
+		if (windowCnt >= WINDOW_MIN_SAMPLES && now - windowStart >= srtt) {
+			long average = windowSum / windowCnt;
+			windowSum = 0;
+			windowCnt = 0;
+			if (baseline == 0) {
+				baseline = average;
+			} else if (average > baseline * LATENCY_TOLERANCE) {
+				backoff(LATENCY_BACKOFF, now);
+			}
+			//기준 응답시간은 천천히 따라가도록 하여 목적지 응답시간의 지속적인 변화는 흡수
+			baseline += (average - baseline) / BASELINE_WEIGHT;
+		}
+
+		//최근 구간에 감소가 없고 한도에 근접한 경우 덧셈 증가
+		if (inflight * 2 >= (int) limit && now - lastBackoff >= window()) {
+			limit = Math.min(maxLimit, limit + 1.0 / limit);
+		}
+	}
+
+	/**
+	 * 타임아웃 발생 시 재송신 타임아웃 증가 및 송신 한도 감소
+	 */
+	public synchronized void onTimeout() {
+		rto = bound(rto * 2);
+		backoff(TIMEOUT_BACKOFF, System.nanoTime());
+		log.debug("[Channel: {}] ADAPTIVE TIMEOUT rto: {}ms, limit: {}", chnlId, TimeUnit.NANOSECONDS.toMillis(rto), (int) limit);
+	}
+
+	/**
+	 * 송신 한도 곱셈 감소(측정 구간 이내 재발생 시 생략)
+	 * @param rate 감소 비율
+	 * @param now 현재 시각(ns)
+	 */
+	private void backoff(double rate, long now) {
+		if (lastBackoff != 0 && now - lastBackoff < window()) {
+			return;
+		}
+		limit = Math.max(MIN_LIMIT, limit * rate);
+		lastBackoff = now;
+	}
+
+	/**
+	 * 측정 구간 길이
+	 * @return 구간 길이(ns)
+	 */
+	private long window() {
+		return Math.max(srtt, minRto);
+	}
+
+	/**
+	 * 채널 정보 기준 최소/최대값 세팅
+	 * @param channelVO 채널 정보 객체
+	 */
+	private void bounds(ChannelVO channelVO) {
+		maxRto = Math.max(TimeUnit.SECONDS.toNanos(channelVO.getRcvTimeout()), TimeUnit.MILLISECONDS.toNanos(MIN_RTO_MILLIS));
+		minRto = Math.min(TimeUnit.MILLISECONDS.toNanos(MIN_RTO_MILLIS), maxRto);
+		maxLimit = Math.max(channelVO.getSsnCnt(), 1) * MAX_LIMIT_PER_SESSION;
+	}
+
+	/**
+	 * 응답시간 표본 초기화
+	 */
+	private void reset() {
+		srtt = 0;
+		rttvar = 0;
+		sampleCnt = 0;
+		p50 = 0;
+		p99 = 0;
+		windowCnt = 0;
+		windowSum = 0;
+		baseline = 0;
+		rto = maxRto;
+	}
+
+	/**
+	 * 한도 여유만큼 대기 객체 할당
+	 * @return 할당된 대기 객체(없을 시 null)
+	 */
+	private List<Runnable> grant() {
+		List<Runnable> granted = null;
+		while (!waiters.isEmpty() && inflight < (int) limit) {
+			if (granted == null) {
+				granted = new ArrayList<>();
+			}
+			granted.add(waiters.poll());
+			inflight++;
+		}
+		return granted;
+	}
+
+	/**
+	 * 할당된 대기 객체 실행(잠금 밖에서 호출)
+	 * @param granted 할당된 대기 객체
+	 */
+	private static void wake(List<Runnable> granted) {
+		if (granted != null) {
+			for (Runnable waiter : granted) {
+				waiter.run();
+			}
+		}
+	}
+
+	/**
+	 * 재송신 타임아웃 조회
+	 * @return 재송신 타임아웃(ns)
+	 */
+	public synchronized long getRto() {
+		return rto;
+	}
+
+	/**
+	 * 동시 송신 한도 조회
+	 * @return 동시 송신 한도
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * 송신중 건수 조회
+	 * @return 송신중 건수
+	 */
+	public synchronized int getInflight() {
+		return inflight;
+	}
+
+	/**
+	 * 대기중 건수 조회
+	 * @return 대기중 건수
+	 */
+	public synchronized int getWaiting() {
+		return waiters.size();
+	}
+
+	/**
+	 * 응답시간 p50 조회
+	 * @return p50(ns)
+	 */
+	public synchronized long getP50() {
+		return p50;
+	}
+
+	/**
+	 * 응답시간 p99 조회
+	 * @return p99(ns)
+	 */
+	public synchronized long getP99() {
+		return p99;
+	}
+
+	/**
+	 * 백분위 재계산
+	 */
+	private void percentile() {
+		int size = (int) Math.min(sampleCnt, SAMPLE_SIZE);
+		long[] sorted = Arrays.copyOf(samples, size);
+		Arrays.sort(sorted);
+		p50 = sorted[(size - 1) / 2];
+		p99 = sorted[(int) Math.ceil((size - 1) * 0.99)];
+	}
+
+	/**
+	 * 재송신 타임아웃 최소/최대값 적용
+	 * @param value 재송신 타임아웃(ns)
+	 * @return 재송신 타임아웃(ns)
+	 */
+	private long bound(long value) {
+		return Math.min(maxRto, Math.max(minRto, value));
+	}
+}
@@ -0,0 +1,389 @@
+package com.tm.online;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.tm.constant.ConstantFactory;
+import com.tm.db.app.vo.ChannelVO;
+import com.tm.db.app.vo.TelegramVO;
+import com.tm.utils.TextUtil;
+
+import io.netty.channel.Channel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 채널 설정 버전 관리 모듈
+ *
+ * <p>채널 정보를 불변 스냅샷으로 보관하고 재적재 시 원자적으로 교체합니다.
+ * 핸들러는 메시지 단위로 스냅샷을 조회하므로 처리중인 메시지는 이전 버전의 채널 정보로 완료됩니다.
+ * 스냅샷에 등록된 채널 정보 객체는 교체 이후 수정하지 않아야 합니다.</p>
+ *
+ * <p>전문 키 위치(전문아이디/메시지 키 위치 및 길이, 길이부 길이, 문자셋)가 바뀐 경우 이전 버전의 채널 정보를 최종 타임아웃 시간
+ * (rcvTimeout * (reTryCnt + 1)) 동안 보관하여, 이전 버전으로 송신된 메시지의 응답과 재송신은 송신 시점의 버전으로 해석합니다.</p>
+ *
+ * <p>전문 레이아웃은 재적재 시점의 ConstantFactory.tlgrmMap 사본으로 idle 전문 생성과 예열에만 사용합니다.
+ * 전문 변환(MessageConvert)은 ConstantFactory.tlgrmMap 을 직접 조회하므로 레이아웃 변경은 처리중인 메시지에도 즉시 반영됩니다.</p>
+ *
+ * <p>재현용 채널처럼 다른 채널의 설정을 빌려 쓰는 채널은 원본 채널아이디를 등록하여, 전문 레이아웃과 허용/무시 IP 를 원본 채널 기준으로 조회합니다.</p>
+ *
+ * <p>lombok 어노테이션 사용으로 생성자 및 Getter/Setter 메서드가 자동으로 생성되어 java 도큐먼트에 표현되지 않습니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ * @see com.tm.online.OnlineClient#reload(ChannelVO)
+ */
+@Slf4j
+public class OnlineClientConfig {
+	/** 채널별 설정 */
+	private static final ConcurrentHashMap<String, OnlineClientConfig> configMap = new ConcurrentHashMap<>();
+
+	/** 원본 채널아이디(채널아이디, 전문 레이아웃/IP 설정을 빌려 쓰는 원본 채널아이디) */
+	private static final ConcurrentHashMap<String, String> aliasMap = new ConcurrentHashMap<>();
+
+	/** 현재 스냅샷 */
+	private final AtomicReference<Snapshot> snapshot;
+
+	/** 송신 세션 목록(채널 순번, 채널) */
+	private final ConcurrentHashMap<Integer, Channel> sessionMap = new ConcurrentHashMap<>();
+
+	/** 송신 세션 상태 확인 완료 목록(채널 순번, 완료 시 채널) */
+	private final ConcurrentHashMap<Integer, CompletableFuture<Channel>> readyMap = new ConcurrentHashMap<>();
+
+	/**
+	 * 생성자
+	 * @param channelVO 채널 정보 객체
+	 */
+	private OnlineClientConfig(ChannelVO channelVO) {
+		this.snapshot = new AtomicReference<>(compile(null, channelVO, Collections.<ChannelVO, Long>emptyMap()));
+	}
+
+	/**
+	 * 채널 설정 등록
+	 * @param channelVO 채널 정보 객체
+	 * @return 채널 설정
+	 */
+	public static OnlineClientConfig init(ChannelVO channelVO) {
+		OnlineClientConfig config = new OnlineClientConfig(channelVO);
+		configMap.put(channelVO.getChnlId(), config);
+		return config;
+	}
+
+	/**
+	 * 채널 설정 조회
+	 * @param chnlId 채널아이디
+	 * @return 채널 설정, 미등록 시 null
+	 */
+	public static OnlineClientConfig get(String chnlId) {
+		return configMap.get(chnlId);
+	}
+
+	/**
+	 * 채널 설정 삭제
+	 * @param channelVO 채널 정보 객체
+	 */
+	public static void remove(ChannelVO channelVO) {
+		configMap.remove(channelVO.getChnlId());
+	}
+
+	/**
+	 * 원본 채널아이디 등록(채널 기동 전 호출)
+	 * @param chnlId 채널아이디
+	 * @param source 원본 채널아이디
+	 */
+	public static void alias(String chnlId, String source) {
+		aliasMap.put(chnlId, source);
+	}
+
+	/**
+	 * 원본 채널아이디 삭제
+	 * @param chnlId 채널아이디
+	 */
+	public static void unalias(String chnlId) {
+		aliasMap.remove(chnlId);
+	}
+
+	/**
+	 * 전문 레이아웃/IP 설정 조회용 채널아이디
+	 * @param chnlId 채널아이디
+	 * @return 원본 채널아이디, 미등록 시 전달받은 채널아이디
+	 */
+	public static String source(String chnlId) {
+		return aliasMap.getOrDefault(chnlId, chnlId);
+	}
+
+	/**
+	 * 현재 버전의 채널 정보 조회
+	 * @param channelVO 핸들러 생성 시점의 채널 정보 객체
+	 * @return 현재 버전의 채널 정보 객체, 미등록 시 전달받은 객체
+	 */
+	public static ChannelVO channelVO(ChannelVO channelVO) {
+		OnlineClientConfig config = configMap.get(channelVO.getChnlId());
+		return config == null ? channelVO : config.current().getChannelVO();
+	}
+
+	/**
+	 * 메시지 해석 대상 채널 정보 조회(현재 버전 및 응답 대기중인 전문 키 위치가 다른 이전 버전)
+	 * @param channelVO 핸들러 생성 시점의 채널 정보 객체
+	 * @return 채널 정보 객체 목록(첫번째는 현재 버전)
+	 */
+	public static List<ChannelVO> candidates(ChannelVO channelVO) {
+		OnlineClientConfig config = configMap.get(channelVO.getChnlId());
+		return config == null ? Collections.singletonList(channelVO) : config.current().candidates();
+	}
+
+	/**
+	 * 전문 키 위치 동일 여부(전문아이디/메시지 키 위치 및 길이, 길이부 길이, 문자셋)
+	 * @param a 채널 정보 객체
+	 * @param b 채널 정보 객체
+	 * @return 동일 여부
+	 */
+	static boolean sameKeyLayout(ChannelVO a, ChannelVO b) {
+		return a.getMsgKeySrtPt() == b.getMsgKeySrtPt()
+				&& a.getMsgKeyLen() == b.getMsgKeyLen()
+				&& a.getTlgrmIdSrtPt() == b.getTlgrmIdSrtPt()
+				&& a.getTlgrmIdLen() == b.getTlgrmIdLen()
+				&& a.getDataPfxLen() == b.getDataPfxLen()
+				&& Objects.equals(a.getRemoteCharset(), b.getRemoteCharset())
+				&& Objects.equals(a.getLocalCharset(), b.getLocalCharset());
+	}
+
+	/**
+	 * 현재 스냅샷 조회
+	 * @return 스냅샷
+	 */
+	public Snapshot current() {
+		return snapshot.get();
+	}
+
+	/**
+	 * 채널 정보 재적재 및 전문 레이아웃 사본 갱신
+	 * <p>ConstantFactory.tlgrmMap 을 다시 읽으며, 필드 목록 객체가 바뀌지 않은 레이아웃은 이전 사본을 재사용합니다.</p>
+	 * @param channelVO 새 채널 정보 객체
+	 * @return 새 스냅샷
+	 */
+	public Snapshot reload(ChannelVO channelVO) {
+		Snapshot prev;
+		Snapshot next;
+		do {
+			prev = snapshot.get();
+			next = compile(prev, channelVO, draining(prev, channelVO));
+		} while (!snapshot.compareAndSet(prev, next));
+		log.info("[Channel: {}] CONFIG RELOAD version: {} -> {}", channelVO.getChnlId(), prev.getVersion(), next.getVersion());
+		return next;
+	}
+
+	/**
+	 * 송신 세션 등록
+	 * @param chnlSeq 채널 순번
+	 * @param channel 송신 채널
+	 */
+	public void setSession(int chnlSeq, Channel channel) {
+		sessionMap.put(chnlSeq, channel);
+	}
+
+	/**
+	 * 송신 세션 삭제
+	 * @param chnlSeq 채널 순번
+	 * @param channel 송신 채널
+	 */
+	public void removeSession(int chnlSeq, Channel channel) {
+		sessionMap.remove(chnlSeq, channel);
+	}
+
+	/**
+	 * 송신 세션 상태 확인 완료 조회
+	 * @param chnlSeq 채널 순번
+	 * @return 상태 확인 완료 시 완료되는 future(최초 1회)
+	 */
+	public CompletableFuture<Channel> ready(int chnlSeq) {
+		return readyMap.computeIfAbsent(chnlSeq, k -> new CompletableFuture<>());
+	}
+
+	/**
+	 * 송신 세션 상태 확인 완료 처리
+	 * @param chnlSeq 채널 순번
+	 * @param channel 송신 채널
+	 */
+	public void setReady(int chnlSeq, Channel channel) {
+		ready(chnlSeq).complete(channel);
+	}
+
+	/**
+	 * 활성 송신 세션 수 조회
+	 * @return 활성 송신 세션 수
+	 */
+	public int getSessionCnt() {
+		int cnt = 0;
+		for (Channel channel : sessionMap.values()) {
+			if (channel.isActive()) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * 송신 세션 조회
+	 * @param chnlSeq 채널 순번
+	 * @return 송신 채널, 없을 시 null
+	 */
+	public Channel getSession(int chnlSeq) {
+		return sessionMap.get(chnlSeq);
+	}
+
+	/**
+	 * 응답 대기중인 이전 버전 목록 산출(전문 키 위치가 바뀐 경우 이전 버전을 최종 타임아웃 시간 동안 보관)
+	 * @param prev 이전 스냅샷
+	 * @param channelVO 새 채널 정보 객체
+	 * @return 이전 버전 목록(채널 정보 객체, 보관 만료 시각(ns))
+	 */
+	private static Map<ChannelVO, Long> draining(Snapshot prev, ChannelVO channelVO) {
+		long now = System.nanoTime();
+		Map<ChannelVO, Long> draining = new LinkedHashMap<>();
+		ChannelVO old = prev.getChannelVO();
+		if (!sameKeyLayout(old, channelVO)) {
+			draining.put(old, now + TimeUnit.SECONDS.toNanos(old.getRcvTimeout()) * (old.getReTryCnt() + 1));
+		}
+		for (Map.Entry<ChannelVO, Long> entry : prev.getDraining().entrySet()) {
+			if (entry.getValue() - now > 0 && !sameKeyLayout(entry.getKey(), channelVO)) {
+				draining.putIfAbsent(entry.getKey(), entry.getValue());
+			}
+		}
+		return Collections.unmodifiableMap(draining);
+	}
+
+	/**
+	 * 스냅샷 컴파일
+	 * @param prev 이전 스냅샷(최초 시 null)
+	 * @param channelVO 채널 정보 객체
+	 * @param draining 응답 대기중인 이전 버전 목록
+	 * @return 스냅샷
+	 */
+	private static Snapshot compile(Snapshot prev, ChannelVO channelVO, Map<ChannelVO, Long> draining) {
+		Map<String, Layout> layouts = new HashMap<>();
+		int compiled = 0;
+		for (Map.Entry<String, List<TelegramVO>> entry : ConstantFactory.tlgrmMap.entrySet()) {
+			String tlgrmId = tlgrmId(channelVO, entry.getKey());
+			if (tlgrmId == null) {
+				continue;
+			}
+			//원본 채널의 레이아웃도 채널아이디 기준 전문키로 보관
+			String tlgrmKey = TextUtil.concat(channelVO.getChnlId(), tlgrmId);
+			Layout layout = prev == null ? null : prev.getLayouts().get(tlgrmKey);
+			if (layout == null || layout.getSource() != entry.getValue()) {
+				layout = Layout.compile(tlgrmId, entry.getValue());
+				compiled++;
+			}
+			layouts.put(tlgrmKey, layout);
+		}
+		long version = prev == null ? 1 : prev.getVersion() + 1;
+		log.debug("[Channel: {}] CONFIG COMPILE version: {}, layouts: {}, compiled: {}", channelVO.getChnlId(), version, layouts.size(), compiled);
+		return new Snapshot(version, channelVO, Collections.unmodifiableMap(layouts), draining);
+	}
+
+	/**
+	 * 전문키에서 채널의 전문아이디 추출
+	 * <p>전문키는 채널아이디와 전문아이디를 구분자 없이 연결한 값이므로, 채널아이디로 시작하면서 전문아이디가 idle("I")
+	 * 또는 전문아이디 길이(tlgrmIdLen)와 일치하고, 채널아이디가 더 긴 다른 등록 채널의 전문키가 아닌 경우만 해당 채널의 전문으로 봅니다.
+	 * 원본 채널아이디가 등록된 경우 원본 채널의 전문키를 대상으로 합니다.</p>
+	 * @param channelVO 채널 정보 객체
+	 * @param tlgrmKey 전문키
+	 * @return 전문아이디, 다른 채널의 전문키인 경우 null
+	 */
+	static String tlgrmId(ChannelVO channelVO, String tlgrmKey) {
+		String chnlId = source(channelVO.getChnlId());
+		if (!tlgrmKey.startsWith(chnlId)) {
+			return null;
+		}
+		String tlgrmId = tlgrmKey.substring(chnlId.length());
+		if (!"I".equals(tlgrmId) && tlgrmId.length() != channelVO.getTlgrmIdLen()) {
+			return null;
+		}
+		for (String other : configMap.keySet()) {
+			if (!other.equals(channelVO.getChnlId()) && other.length() > chnlId.length() && other.startsWith(chnlId) && tlgrmKey.startsWith(other)) {
+				return null;
+			}
+		}
+		return tlgrmId;
+	}
+
+	/**
+	 * 채널 설정 스냅샷
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static final class Snapshot {
+		/** 버전 */
+		private final long version;
+		/** 채널 정보 객체 */
+		private final ChannelVO channelVO;
+		/** 전문 레이아웃 사본(전문키, 레이아웃) */
+		private final Map<String, Layout> layouts;
+		/** 전문 키 위치가 다른 응답 대기중인 이전 버전(채널 정보 객체, 보관 만료 시각(ns)) */
+		private final Map<ChannelVO, Long> draining;
+
+		/**
+		 * 전문 레이아웃 필드 조회
+		 * @param tlgrmKey 전문키
+		 * @return 필드 목록, 없을 시 null
+		 */
+		public List<TelegramVO> fields(String tlgrmKey) {
+			Layout layout = layouts.get(tlgrmKey);
+			return layout == null ? null : layout.getFields();
+		}
+
+		/**
+		 * 메시지 해석 대상 채널 정보 조회(보관 만료된 이전 버전 제외)
+		 * @return 채널 정보 객체 목록(첫번째는 현재 버전)
+		 */
+		public List<ChannelVO> candidates() {
+			if (draining.isEmpty()) {
+				return Collections.singletonList(channelVO);
+			}
+			long now = System.nanoTime();
+			List<ChannelVO> candidates = new ArrayList<>();
+			candidates.add(channelVO);
+			for (Map.Entry<ChannelVO, Long> entry : draining.entrySet()) {
+				if (entry.getValue() - now > 0) {
+					candidates.add(entry.getKey());
+				}
+			}
+			return candidates;
+		}
+	}
+
+	/**
+	 * 전문 레이아웃 사본(idle 전문 생성 및 예열용)
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static final class Layout {
+		/** 전문아이디 */
+		private final String tlgrmId;
+		/** 원본 필드 목록(변경 여부 비교용) */
+		private final List<TelegramVO> source;
+		/** 필드 목록 */
+		private final List<TelegramVO> fields;
+
+		/**
+		 * 레이아웃 사본 생성
+		 * @param tlgrmId 전문아이디
+		 * @param source 원본 필드 목록
+		 * @return 레이아웃
+		 */
+		static Layout compile(String tlgrmId, List<TelegramVO> source) {
+			return new Layout(tlgrmId, source, Collections.unmodifiableList(new ArrayList<>(source)));
+		}
+	}
+}
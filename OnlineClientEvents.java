@@ -0,0 +1,185 @@
+package com.tm.online;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * 온라인 전문 처리 단계별 JFR(JDK Flight Recorder) 이벤트 모음
+ *
+ * <p>JFR 기록이 꺼져 있거나 이벤트가 비활성 상태이면 시각 측정과 필드 설정을 하지 않습니다.
+ * 임계값은 JFR 설정(.jfc)의 threshold 로, 표본 비율은 시스템 속성 tm.jfr.sampleRate(N건 중 1건, 기본 1)로 조정합니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ */
+public final class OnlineClientEvents {
+	/** 표본 비율(N건 중 1건 기록) */
+	private static final int SAMPLE_RATE = Integer.getInteger("tm.jfr.sampleRate", 1);
+
+	/**
+	 * 생성자
+	 */
+	private OnlineClientEvents() {
+	}
+
+	/**
+	 * 기록 대상 여부(임계값 및 표본 비율 적용)
+	 * @param event 이벤트
+	 * @return 기록 대상 여부
+	 */
+	static boolean shouldCommit(Event event) {
+		return event.shouldCommit() && (SAMPLE_RATE <= 1 || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0);
+	}
+
+	/**
+	 * 단계별 소요 시간 측정 이벤트
+	 */
+	@Category({ "TM", "Online" })
+	@StackTrace(false)
+	@Enabled(true)
+	@Threshold("0 ms")
+	abstract static class StageEvent extends Event {
+		@Label("Channel ID")
+		String chnlId;
+
+		@Label("Telegram ID")
+		String tlgrmId;
+
+		@Label("Message Key")
+		String msgKey;
+
+		/** 직전 단계 종료 시각(ns) */
+		private transient long last;
+
+		/**
+		 * 측정 시작
+		 */
+		void start() {
+			if (isEnabled()) {
+				begin();
+				last = System.nanoTime();
+			}
+		}
+
+		/**
+		 * 직전 단계 이후 소요 시간
+		 * @return 소요 시간(ns), 비활성 시 0
+		 */
+		long lap() {
+			if (last == 0) {
+				return 0;
+			}
+			long now = System.nanoTime();
+			long elapsed = now - last;
+			last = now;
+			return elapsed;
+		}
+
+		/**
+		 * 측정 종료 및 기록
+		 * @param chnlId 채널아이디
+		 * @param tlgrmId 전문아이디
+		 * @param msgKey 메시지 키
+		 */
+		void end(String chnlId, String tlgrmId, String msgKey) {
+			if (last != 0 && OnlineClientEvents.shouldCommit(this)) {
+				this.chnlId = chnlId;
+				this.tlgrmId = tlgrmId;
+				this.msgKey = msgKey;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * 로컬 수신 요청 처리(헤더 분석 - 변환 - redis 등록 - 송신 요청)
+	 * <p>처리 결과(outcome)는 SENT, REDIS FAIL, CONNECT FAIL 중 하나입니다.</p>
+	 */
+	@Name("com.tm.online.Inbound")
+	@Label("Online Inbound")
+	@Description("Local request parsing, conversion, redis correlation and hand-off to the outbound channel")
+	static final class InboundEvent extends StageEvent {
+		@Label("Outcome")
+		String outcome;
+
+		@Label("Parse")
+		@Timespan(Timespan.NANOSECONDS)
+		long parseNanos;
+
+		@Label("Convert")
+		@Timespan(Timespan.NANOSECONDS)
+		long convertNanos;
+
+		@Label("Redis")
+		@Timespan(Timespan.NANOSECONDS)
+		long redisNanos;
+
+		@Label("Connect")
+		@Timespan(Timespan.NANOSECONDS)
+		long connectNanos;
+	}
+
+	/**
+	 * 목적지 응답 처리(헤더 분석 - redis 조회/삭제 - 내부채널 조회 - 변환 및 전송)
+	 * <p>처리 결과(outcome)는 ROUTED, NOT CONNECTED, SND IGNR, SND SKIP, REDIS FAIL 중 하나입니다.</p>
+	 */
+	@Name("com.tm.online.Response")
+	@Label("Online Response")
+	@Description("Remote response parsing, redis correlation, conversion and routing to the local channel")
+	static final class ResponseEvent extends StageEvent {
+		@Label("Outcome")
+		String outcome;
+
+		@Label("Parse")
+		@Timespan(Timespan.NANOSECONDS)
+		long parseNanos;
+
+		@Label("Redis")
+		@Timespan(Timespan.NANOSECONDS)
+		long redisNanos;
+
+		@Label("Convert")
+		@Timespan(Timespan.NANOSECONDS)
+		long convertNanos;
+
+		@Label("Route")
+		@Timespan(Timespan.NANOSECONDS)
+		long routeNanos;
+	}
+
+	/**
+	 * 송신 채널 쓰기 대기(write 요청 - 소켓 기록 완료)
+	 */
+	@Name("com.tm.online.OutboundWrite")
+	@Label("Online Outbound Write")
+	@Description("Time a telegram spends queued in the outbound channel until it is written to the socket")
+	static final class OutboundWriteEvent extends StageEvent {
+	}
+
+	/**
+	 * 목적지 왕복(최초 송신 - 응답 수신 또는 타임아웃)
+	 */
+	@Name("com.tm.online.RoundTrip")
+	@Label("Online Round Trip")
+	@Description("Remote round trip from first send to response or final timeout")
+	static final class RoundTripEvent extends StageEvent {
+		@Label("Retries")
+		int retryCnt;
+
+		@Label("Timed Out")
+		boolean timeout;
+
+		@Label("Retransmit Timeout")
+		@Timespan(Timespan.NANOSECONDS)
+		long rtoNanos;
+	}
+}
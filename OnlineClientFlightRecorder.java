@@ -0,0 +1,403 @@
+package com.tm.online;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.tm.db.app.vo.ChannelVO;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 채널별 전문 송수신 기록 모듈(flight recorder)
+ *
+ * <p>수신 전문을 고정 크기 슬롯의 off-heap 링버퍼에 상시 기록하고, 요청 시 또는 이상 발생 시 바이너리 파일로 저장합니다.
+ * 슬롯 크기를 넘는 전문은 잘라서 기록하며 원본 길이는 함께 보관합니다. 기록은 잠금 없이 동작하므로 저장 중 덮어쓰인 슬롯은 제외됩니다.
+ * 슬롯 순번은 {@link AtomicLongArray} 에 두고 내용 기록/복사 전후에 메모리 펜스를 두어, 기록 중이거나 덮어쓰인 슬롯을 저장하지 않습니다.</p>
+ *
+ * <p>이상 발생 시 저장은 redis 조회 실행기를 점유하지 않도록 전체 채널 공용의 저장 전용 스레드에서 처리합니다.</p>
+ *
+ * <p>시스템 속성 tm.recorder.enabled(기본 true), tm.recorder.slots(기본 1024), tm.recorder.slotSize(기본 2048),
+ * tm.recorder.dir(기본 java.io.tmpdir)로 설정합니다.</p>
+ *
+ * <p>기록 객체는 채널 기동 시 생성되며, 채널 종료 후에는 조회되지 않아 기록하지 않습니다.
+ * 링버퍼는 기록/저장하는 이벤트루프와 실행기가 모두 종료된 뒤 해제합니다.</p>
+ *
+ * <p>lombok 어노테이션 사용으로 생성자 및 Getter/Setter 메서드가 자동으로 생성되어 java 도큐먼트에 표현되지 않습니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ * @see com.tm.online.OnlineClientReplay
+ */
+@Slf4j
+public class OnlineClientFlightRecorder {
+	/** 로컬 수신 방향 */
+	public static final byte LOCAL_RCV = 1;
+	/** 목적지 수신 방향 */
+	public static final byte REMOTE_RCV = 2;
+
+	/** 사용 여부 */
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("tm.recorder.enabled", "true"));
+
+	/** 파일 식별자("TMFR") */
+	static final int MAGIC = 0x544D4652;
+	/** 파일 버전 */
+	static final short VERSION = 1;
+
+	/** 슬롯 수 */
+	private static final int SLOTS = Integer.getInteger("tm.recorder.slots", 1024);
+	/** 슬롯 크기(byte) */
+	private static final int SLOT_SIZE = Integer.getInteger("tm.recorder.slotSize", 2048);
+	/** 저장 경로 */
+	private static final String DUMP_DIR = System.getProperty("tm.recorder.dir", System.getProperty("java.io.tmpdir"));
+	/** 이상 발생 시 저장 최소 간격(ms) */
+	private static final long ANOMALY_INTERVAL_MILLIS = 60000;
+	/** 슬롯 헤더 크기(nanos, direction, chnlSeq, dataLen, storedLen, keyLen) */
+	private static final int SLOT_HEADER = 8 + 1 + 4 + 4 + 4 + 2;
+
+	/** 이상 발생 시 저장 전용 실행기 */
+	private static final ExecutorService DUMP_EXECUTOR = Executors.newSingleThreadExecutor(new DefaultThreadFactory("recorder-dump", true));
+
+	/** 채널별 기록 객체 */
+	private static final ConcurrentHashMap<String, OnlineClientFlightRecorder> recorderMap = new ConcurrentHashMap<>();
+
+	/** 채널아이디 */
+	private final String chnlId;
+	/** 링버퍼 */
+	private final ByteBuf buffer;
+	/** 슬롯별 기록 순번(기록 중: -1) */
+	private final AtomicLongArray slotSeq = new AtomicLongArray(SLOTS);
+	/** 기록 순번 */
+	private final AtomicLong sequence = new AtomicLong();
+	/** 최근 이상 발생 저장 시각(ms) */
+	private final AtomicLong lastAnomaly = new AtomicLong();
+	/** 기준 시각(ms) */
+	private final long baseMillis = System.currentTimeMillis();
+	/** 기준 시각(ns) */
+	private final long baseNanos = System.nanoTime();
+
+	/**
+	 * 생성자
+	 * @param chnlId 채널아이디
+	 */
+	private OnlineClientFlightRecorder(String chnlId) {
+		this.chnlId = chnlId;
+		this.buffer = Unpooled.directBuffer(SLOTS * SLOT_SIZE, SLOTS * SLOT_SIZE);
+		for (int i = 0; i < SLOTS; i++) {
+			slotSeq.set(i, -1);
+		}
+	}
+
+	/**
+	 * 채널별 기록 객체 생성(채널 기동 시 호출, 미사용 시 생성하지 않음)
+	 * @param channelVO 채널 정보 객체
+	 */
+	public static void init(ChannelVO channelVO) {
+		if (ENABLED) {
+			OnlineClientFlightRecorder prev = recorderMap.put(channelVO.getChnlId(), new OnlineClientFlightRecorder(channelVO.getChnlId()));
+			if (prev != null) {
+				log.error("[Channel: {}] RECORDER already registered, previous buffer is not released", channelVO.getChnlId());
+			}
+		}
+	}
+
+	/**
+	 * 채널별 기록 객체 조회
+	 * @param channelVO 채널 정보 객체
+	 * @return 기록 객체, 미사용 또는 채널 종료 시 null
+	 */
+	public static OnlineClientFlightRecorder get(ChannelVO channelVO) {
+		return recorderMap.get(channelVO.getChnlId());
+	}
+
+	/**
+	 * 채널별 기록 객체 삭제(이후 조회되지 않음, 링버퍼는 {@link #release(Collection)} 로 해제)
+	 * @param channelVO 채널 정보 객체
+	 * @return 삭제된 기록 객체, 없을 시 null
+	 */
+	public static OnlineClientFlightRecorder remove(ChannelVO channelVO) {
+		return recorderMap.remove(channelVO.getChnlId());
+	}
+
+	/**
+	 * 기록/저장 스레드 종료 후 링버퍼 해제(저장 전용 스레드에서 저장중인 경우 저장 완료 후 해제)
+	 * @param terminations 기록/저장하는 이벤트루프 및 실행기의 종료 future 목록
+	 */
+	public void release(Collection<? extends Future<?>> terminations) {
+		final AtomicInteger remain = new AtomicInteger(terminations.size());
+		if (remain.get() == 0) {
+			buffer.release();
+			return;
+		}
+		for (Future<?> termination : terminations) {
+			termination.addListener(new FutureListener<Object>() {
+				@Override
+				public void operationComplete(Future<Object> future) throws Exception {
+					if (remain.decrementAndGet() == 0) {
+						buffer.release();
+						log.debug("[Channel: {}] RECORDER RELEASED", chnlId);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * 전문 기록
+	 * @param channelVO 채널 정보 객체
+	 * @param direction 방향
+	 * @param chnlSeq 세션 순번(로컬은 0)
+	 * @param MsgKey 메시지 키
+	 * @param bytearray 전문
+	 */
+	public static void record(ChannelVO channelVO, byte direction, int chnlSeq, String MsgKey, byte[] bytearray) {
+		if (ENABLED && bytearray != null) {
+			OnlineClientFlightRecorder recorder = get(channelVO);
+			if (recorder != null) {
+				recorder.record(direction, chnlSeq, MsgKey, bytearray);
+			}
+		}
+	}
+
+	/**
+	 * 이상 발생 시 저장(저장 전용 스레드에 위임)
+	 * @param channelVO 채널 정보 객체
+	 * @param reason 사유
+	 */
+	public static void anomaly(ChannelVO channelVO, String reason) {
+		if (ENABLED) {
+			OnlineClientFlightRecorder recorder = get(channelVO);
+			if (recorder != null) {
+				recorder.anomaly(reason);
+			}
+		}
+	}
+
+	/**
+	 * 전문 기록
+	 * @param direction 방향
+	 * @param chnlSeq 세션 순번
+	 * @param MsgKey 메시지 키
+	 * @param bytearray 전문
+	 */
+	public void record(byte direction, int chnlSeq, String MsgKey, byte[] bytearray) {
+		long nanos = System.nanoTime();
+		long seq = sequence.getAndIncrement();
+		int slot = (int) (seq % SLOTS);
+		int offset = slot * SLOT_SIZE;
+		byte[] key = MsgKey == null ? new byte[0] : MsgKey.getBytes(CharsetUtil.UTF_8);
+		int keyLen = Math.min(key.length, SLOT_SIZE - SLOT_HEADER);
+		int storedLen = Math.min(bytearray.length, SLOT_SIZE - SLOT_HEADER - keyLen);
+
+		//기록 중 표시 후 내용 기록(표시가 내용보다 먼저 보이도록 펜스), 마지막에 순번 기록(volatile 쓰기로 내용 이후 공개)
+		slotSeq.set(slot, -1);
+		VarHandle.storeStoreFence();
+		buffer.setLong(offset, nanos);
+		buffer.setByte(offset + 8, direction);
+		buffer.setInt(offset + 9, chnlSeq);
+		buffer.setInt(offset + 13, bytearray.length);
+		buffer.setInt(offset + 17, storedLen);
+		buffer.setShort(offset + 21, keyLen);
+		buffer.setBytes(offset + SLOT_HEADER, key, 0, keyLen);
+		buffer.setBytes(offset + SLOT_HEADER + keyLen, bytearray, 0, storedLen);
+		slotSeq.set(slot, seq);
+	}
+
+	/**
+	 * 이상 발생 시 저장(최소 간격 이내 재발생 시 생략, 저장 전용 스레드에 위임)
+	 * @param reason 사유
+	 */
+	public void anomaly(final String reason) {
+		long now = System.currentTimeMillis();
+		long last = lastAnomaly.get();
+		if (now - last < ANOMALY_INTERVAL_MILLIS || !lastAnomaly.compareAndSet(last, now)) {
+			return;
+		}
+		//저장 완료 전 링버퍼가 해제되지 않도록 참조 유지
+		try {
+			buffer.retain();
+		} catch (IllegalReferenceCountException e) {
+			return;
+		}
+		try {
+			DUMP_EXECUTOR.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Path path = dump();
+						log.info("[Channel: {}] RECORDER DUMP {}: {}", chnlId, reason, path);
+					} catch (IOException e) {
+						log.error("[Channel: {}] RECORDER DUMP FAIL {}", chnlId, reason, e);
+					} finally {
+						buffer.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			buffer.release();
+			log.error("[Channel: {}] RECORDER DUMP REJECT {}", chnlId, reason, e);
+		}
+	}
+
+	/**
+	 * 저장 경로에 파일로 저장
+	 * @return 저장 파일 경로
+	 * @throws IOException 오류
+	 */
+	public Path dump() throws IOException {
+		String name = "tm-" + chnlId + "-" + new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date()) + ".tmfr";
+		Path path = Paths.get(DUMP_DIR, name);
+		dump(path);
+		return path;
+	}
+
+	/**
+	 * 파일로 저장
+	 * @param path 저장 파일 경로
+	 * @throws IOException 오류
+	 */
+	public void dump(Path path) throws IOException {
+		long end = sequence.get();
+		long start = Math.max(0, end - SLOTS);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeUTF(chnlId);
+			out.writeLong(baseMillis);
+			out.writeLong(baseNanos);
+			for (long seq = start; seq < end; seq++) {
+				int slot = (int) (seq % SLOTS);
+				int offset = slot * SLOT_SIZE;
+				//순번은 volatile 읽기로 확인 후 내용 복사
+				if (slotSeq.get(slot) != seq) {
+					continue;
+				}
+				long nanos = buffer.getLong(offset);
+				byte direction = buffer.getByte(offset + 8);
+				int chnlSeq = buffer.getInt(offset + 9);
+				int dataLen = buffer.getInt(offset + 13);
+				int storedLen = buffer.getInt(offset + 17);
+				int keyLen = buffer.getShort(offset + 21);
+				if (keyLen < 0 || storedLen < 0 || SLOT_HEADER + keyLen + storedLen > SLOT_SIZE) {
+					continue;
+				}
+				byte[] key = new byte[keyLen];
+				byte[] data = new byte[storedLen];
+				buffer.getBytes(offset + SLOT_HEADER, key);
+				buffer.getBytes(offset + SLOT_HEADER + keyLen, data);
+				//복사 중 덮어쓰인 슬롯 제외(복사가 순번 재확인보다 먼저 끝나도록 펜스)
+				VarHandle.loadLoadFence();
+				if (slotSeq.get(slot) != seq) {
+					continue;
+				}
+				out.writeLong(seq);
+				out.writeLong(nanos);
+				out.writeByte(direction);
+				out.writeInt(chnlSeq);
+				out.writeInt(dataLen);
+				out.writeUTF(new String(key, CharsetUtil.UTF_8));
+				out.writeInt(storedLen);
+				out.write(data);
+			}
+		}
+	}
+
+	/**
+	 * 저장 파일 읽기
+	 * @param path 저장 파일 경로
+	 * @return 기록 목록(기록 순)
+	 * @throws IOException 오류
+	 */
+	public static List<Record> read(Path path) throws IOException {
+		List<Record> records = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+				throw new IOException("Not a flight recorder file: " + path);
+			}
+			String chnlId = in.readUTF();
+			long baseMillis = in.readLong();
+			long baseNanos = in.readLong();
+			while (true) {
+				long seq;
+				try {
+					seq = in.readLong();
+				} catch (EOFException e) {
+					break;
+				}
+				long nanos = in.readLong();
+				byte direction = in.readByte();
+				int chnlSeq = in.readInt();
+				int dataLen = in.readInt();
+				String MsgKey = in.readUTF();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				long epochMillis = baseMillis + TimeUnit.NANOSECONDS.toMillis(nanos - baseNanos);
+				records.add(new Record(chnlId, seq, nanos, epochMillis, direction, chnlSeq, dataLen, MsgKey, data));
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * 기록 정보
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static final class Record {
+		/** 채널아이디 */
+		private final String chnlId;
+		/** 기록 순번 */
+		private final long seq;
+		/** 기록 시각(ns) */
+		private final long nanos;
+		/** 기록 시각(ms) */
+		private final long epochMillis;
+		/** 방향 */
+		private final byte direction;
+		/** 세션 순번 */
+		private final int chnlSeq;
+		/** 원본 전문 길이 */
+		private final int dataLen;
+		/** 메시지 키 */
+		private final String MsgKey;
+		/** 전문(슬롯 크기 초과 시 잘림) */
+		private final byte[] data;
+
+		/**
+		 * 잘리지 않은 전문 여부
+		 * @return 전체 기록 여부
+		 */
+		public boolean isComplete() {
+			return data.length == dataLen;
+		}
+	}
+}
@@ -0,0 +1,418 @@
+package com.tm.online;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * HTTP 본문 압축/해제 및 Content-Length, keep-alive 처리 모듈
+ *
+ * <p>Netty 의 {@link HttpContentCompressor}, {@link HttpContentDecompressor} 를 업무 핸들러 앞에 추가합니다.
+ * 로컬 리스너에서는 요청의 Accept-Encoding 에 따라 기준 크기 이상의 응답을 gzip/deflate 로 압축하며,
+ * 응답은 redis 경유로 순서와 무관하게 돌아오므로 요청별 Accept-Encoding 및 keep-alive 는 message-key 헤더로 짝을 맞춥니다.
+ * 목적지 클라이언트에서는 요청에 Accept-Encoding 을 지정합니다. 양쪽 모두 압축된 수신 본문은 집계 전에 해제하여 전달합니다.</p>
+ *
+ * <p>응답 압축은 Netty 기본 인코더(응답마다 Deflater 생성) 대신 스레드별로 보관한 Deflater 를 재사용하는 인코더를 사용합니다.
+ * 수신 본문 해제는 gzip CRC/길이 검증을 위해 Netty 기본 해제기를 그대로 사용합니다(요청 본문은 대부분 비압축).</p>
+ *
+ * <p>시스템 속성 tm.http.compression(기본 true), tm.http.compressionThreshold(기본 1024 byte),
+ * tm.http.compressionLevel(기본 6), tm.http.maxContent(집계 핸들러가 없을 때 해제 최대 크기, 기본 16MB)로 설정합니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ */
+public final class OnlineClientHttpCompressor {
+	/** 압축 핸들러 이름 */
+	public static final String NAME = "httpCompressor";
+	/** 해제 핸들러 이름 */
+	public static final String DECOMPRESSOR_NAME = "httpDecompressor";
+	/** 해제 후 집계 핸들러 이름 */
+	public static final String AGGREGATOR_NAME = "httpDecompressAggregator";
+	/** 목적지 요청 헤더 핸들러 이름 */
+	public static final String REQUEST_NAME = "httpRequestHeaders";
+
+	/** 압축 사용 여부 */
+	private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("tm.http.compression", "true"));
+	/** 압축 기준 크기(byte) */
+	private static final int THRESHOLD = Integer.getInteger("tm.http.compressionThreshold", 1024);
+	/** 압축 레벨 */
+	private static final int LEVEL = Integer.getInteger("tm.http.compressionLevel", 6);
+	/** 해제 최대 크기(byte) */
+	private static final int MAX_CONTENT = Integer.getInteger("tm.http.maxContent", 16 * 1024 * 1024);
+	/** 응답 대기 요청 최대 보관 건수(연결당) */
+	private static final int MAX_PENDING_REQUESTS = 10000;
+	/** 메시지 키 헤더 */
+	private static final String MESSAGE_KEY = "message-key";
+	/** 압축 작업 버퍼 크기 */
+	private static final int CHUNK_SIZE = 8192;
+	/** 스레드별 보관 압축기 최대 수(방식별) */
+	private static final int MAX_POOLED_DEFLATERS = 4;
+
+	/** gzip 헤더(magic, deflate, flag 없음, mtime 0, xfl 0, os unknown) */
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	/** 스레드별 gzip 압축기 */
+	private static final FastThreadLocal<ArrayDeque<Deflater>> GZIP_DEFLATERS = new FastThreadLocal<ArrayDeque<Deflater>>() {
+		@Override
+		protected ArrayDeque<Deflater> initialValue() {
+			return new ArrayDeque<>();
+		}
+	};
+	/** 스레드별 deflate 압축기 */
+	private static final FastThreadLocal<ArrayDeque<Deflater>> ZLIB_DEFLATERS = new FastThreadLocal<ArrayDeque<Deflater>>() {
+		@Override
+		protected ArrayDeque<Deflater> initialValue() {
+			return new ArrayDeque<>();
+		}
+	};
+	/** 스레드별 작업 버퍼 */
+	private static final FastThreadLocal<byte[]> CHUNK = new FastThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[CHUNK_SIZE];
+		}
+	};
+
+	/** 목적지 요청 헤더 핸들러 */
+	private static final RequestHeaders REQUEST_HEADERS = new RequestHeaders();
+
+	/**
+	 * 생성자
+	 */
+	private OnlineClientHttpCompressor() {
+	}
+
+	/**
+	 * 로컬 리스너 업무 핸들러 앞에 압축/해제 핸들러 추가(이미 있으면 생략)
+	 * @param ctx 업무 핸들러 Context 객체
+	 */
+	public static void install(ChannelHandlerContext ctx) {
+		ChannelPipeline pipeline = ctx.pipeline();
+		if (pipeline.get(NAME) == null) {
+			decompressor(ctx);
+			pipeline.addBefore(ctx.name(), NAME, new Compressor());
+		}
+	}
+
+	/**
+	 * 목적지 클라이언트 업무 핸들러 앞에 해제 및 요청 헤더 핸들러 추가(이미 있으면 생략)
+	 * @param ctx 업무 핸들러 Context 객체
+	 */
+	public static void installClient(ChannelHandlerContext ctx) {
+		ChannelPipeline pipeline = ctx.pipeline();
+		if (pipeline.get(REQUEST_NAME) == null) {
+			decompressor(ctx);
+			pipeline.addBefore(ctx.name(), REQUEST_NAME, REQUEST_HEADERS);
+		}
+	}
+
+	/**
+	 * 목적지 클라이언트 채널에 해제 및 요청 헤더 핸들러 추가(이미 있으면 생략)
+	 * <p>connect 리스너는 channelActive 보다 먼저 호출되므로 리스너에서 첫 요청을 보내기 전에 호출합니다.</p>
+	 * @param channel 목적지 채널
+	 */
+	public static void installClient(Channel channel) {
+		ChannelHandlerContext ctx = channel.pipeline().context(OnlineClientHttpSndHandler.class);
+		if (ctx != null) {
+			installClient(ctx);
+		}
+	}
+
+	/**
+	 * 해제 핸들러 추가(집계 핸들러가 있으면 그 앞에, 없으면 집계 핸들러와 함께 업무 핸들러 앞에 추가)
+	 * @param ctx 업무 핸들러 Context 객체
+	 */
+	private static void decompressor(ChannelHandlerContext ctx) {
+		ChannelPipeline pipeline = ctx.pipeline();
+		ChannelHandlerContext aggregator = pipeline.context(HttpObjectAggregator.class);
+		if (aggregator != null) {
+			pipeline.addBefore(aggregator.name(), DECOMPRESSOR_NAME, new HttpContentDecompressor());
+		} else {
+			pipeline.addBefore(ctx.name(), DECOMPRESSOR_NAME, new HttpContentDecompressor());
+			pipeline.addBefore(ctx.name(), AGGREGATOR_NAME, new HttpObjectAggregator(MAX_CONTENT));
+		}
+	}
+
+	/**
+	 * 문자열을 채널 할당자의 direct 버퍼에 직접 기록
+	 * @param alloc 채널 할당자
+	 * @param text 문자열(JSON 등)
+	 * @param charset 문자셋
+	 * @return direct 버퍼
+	 */
+	public static ByteBuf buffer(ByteBufAllocator alloc, String text, Charset charset) {
+		if (CharsetUtil.UTF_8.equals(charset)) {
+			ByteBuf buf = alloc.directBuffer(ByteBufUtil.utf8MaxBytes(text));
+			ByteBufUtil.writeUtf8(buf, text);
+			return buf;
+		}
+		ByteBuf buf = alloc.directBuffer((int) (text.length() * (double) charset.newEncoder().maxBytesPerChar()));
+		buf.writeCharSequence(text, charset);
+		return buf;
+	}
+
+	/**
+	 * 로컬 응답 압축 핸들러(요청별 Accept-Encoding/keep-alive 를 message-key 로 매칭)
+	 */
+	private static final class Compressor extends HttpContentCompressor {
+		/** 응답 대기 요청(메시지 키, 요청 정보) */
+		private final Map<String, Request> requests = new LinkedHashMap<String, Request>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Request> eldest) {
+				//응답 없이 끝난 요청(REDIS FAIL, SND SKIP, 타임아웃 등) 정리
+				return size() > MAX_PENDING_REQUESTS;
+			}
+		};
+		/** 현재 응답의 Accept-Encoding */
+		private String acceptEncoding;
+		/** keep-alive 가 아닌 요청 수신 여부(대기중인 응답 전송 후 종료) */
+		private boolean closing;
+		/** 압축 핸들러 Context 객체 */
+		private ChannelHandlerContext ctx;
+
+		/**
+		 * 생성자
+		 */
+		Compressor() {
+			super(LEVEL, 15, 8, THRESHOLD);
+		}
+
+		@Override
+		public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+			this.ctx = ctx;
+			super.handlerAdded(ctx);
+		}
+
+		@Override
+		protected void decode(ChannelHandlerContext ctx, HttpRequest msg, List<Object> out) throws Exception {
+			String MsgKey = msg.headers().get(MESSAGE_KEY);
+			if (MsgKey != null) {
+				requests.put(MsgKey, new Request(ENABLED ? msg.headers().get(HttpHeaderNames.ACCEPT_ENCODING) : null, HttpUtil.isKeepAlive(msg)));
+			}
+			super.decode(ctx, msg, out);
+		}
+
+		@Override
+		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+			if (msg instanceof HttpResponse) {
+				HttpResponse response = (HttpResponse) msg;
+				Request request = requests.remove(response.headers().get(MESSAGE_KEY));
+				//매칭되는 요청이 없으면 압축하지 않음
+				acceptEncoding = request == null || request.acceptEncoding == null ? HttpHeaderValues.IDENTITY.toString() : request.acceptEncoding;
+				if (request != null && !request.keepAlive) {
+					closing = true;
+				}
+				if (msg instanceof FullHttpResponse) {
+					HttpUtil.setContentLength(response, ((FullHttpResponse) msg).content().readableBytes());
+				}
+				if (ENABLED) {
+					response.headers().add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+				}
+				//keep-alive 가 아닌 요청이 있었으면 대기중인 응답을 모두 보낸 뒤 종료
+				if (closing && requests.isEmpty()) {
+					HttpUtil.setKeepAlive(response, false);
+					promise = promise.unvoid();
+					promise.addListener(ChannelFutureListener.CLOSE);
+				}
+			}
+			super.write(ctx, msg, promise);
+		}
+
+		@Override
+		protected Result beginEncode(HttpResponse httpResponse, String acceptEncoding) throws Exception {
+			if (httpResponse.headers().contains(HttpHeaderNames.CONTENT_ENCODING)) {
+				return null;
+			}
+			if (httpResponse instanceof HttpContent && ((HttpContent) httpResponse).content().readableBytes() < THRESHOLD) {
+				return null;
+			}
+			//요청 순서(FIFO) 대신 message-key 로 매칭한 Accept-Encoding 사용
+			ZlibWrapper wrapper = determineWrapper(this.acceptEncoding);
+			if (wrapper == null) {
+				return null;
+			}
+			boolean gzip = wrapper == ZlibWrapper.GZIP;
+			return new Result(gzip ? HttpHeaderValues.GZIP.toString() : HttpHeaderValues.DEFLATE.toString(),
+					new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(), ctx.channel().config(), new DeflateEncoder(gzip)));
+		}
+	}
+
+	/**
+	 * 스레드별 보관 압축기를 사용하는 본문 압축 인코더(응답 1건 단위로 생성, 종료 시 압축기 반납)
+	 */
+	private static final class DeflateEncoder extends MessageToByteEncoder<ByteBuf> {
+		/** gzip 여부(아니면 deflate) */
+		private final boolean gzip;
+		/** gzip 본문 CRC */
+		private final CRC32 crc = new CRC32();
+		/** 사용중인 압축기 */
+		private Deflater deflater;
+
+		/**
+		 * 생성자
+		 * @param gzip gzip 여부(아니면 deflate)
+		 */
+		DeflateEncoder(boolean gzip) {
+			this.gzip = gzip;
+		}
+
+		@Override
+		protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+			begin(out);
+			int length = in.readableBytes();
+			byte[] input;
+			int offset;
+			if (in.hasArray()) {
+				input = in.array();
+				offset = in.arrayOffset() + in.readerIndex();
+			} else {
+				input = ByteBufUtil.getBytes(in);
+				offset = 0;
+			}
+			if (gzip) {
+				crc.update(input, offset, length);
+			}
+			deflater.setInput(input, offset, length);
+			byte[] chunk = CHUNK.get();
+			while (!deflater.needsInput()) {
+				out.writeBytes(chunk, 0, deflater.deflate(chunk));
+			}
+			in.skipBytes(length);
+		}
+
+		@Override
+		public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+			//압축 종료 블록 및 gzip trailer(CRC, 원본 길이) 기록 후 압축기 반납
+			ByteBuf footer = ctx.alloc().directBuffer();
+			try {
+				begin(footer);
+				deflater.finish();
+				byte[] chunk = CHUNK.get();
+				while (!deflater.finished()) {
+					footer.writeBytes(chunk, 0, deflater.deflate(chunk));
+				}
+				if (gzip) {
+					footer.writeIntLE((int) crc.getValue());
+					footer.writeIntLE((int) deflater.getBytesRead());
+				}
+				ctx.writeAndFlush(footer);
+			} catch (RuntimeException e) {
+				footer.release();
+				throw e;
+			} finally {
+				release();
+				ctx.close(promise);
+			}
+		}
+
+		@Override
+		public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+			release();
+			super.handlerRemoved(ctx);
+		}
+
+		/**
+		 * 압축기 획득(최초 1회, gzip 은 헤더 기록)
+		 * @param out 출력 버퍼
+		 */
+		private void begin(ByteBuf out) {
+			if (deflater != null) {
+				return;
+			}
+			Deflater pooled = (gzip ? GZIP_DEFLATERS : ZLIB_DEFLATERS).get().poll();
+			deflater = pooled != null ? pooled : new Deflater(LEVEL, gzip);
+			if (gzip) {
+				out.writeBytes(GZIP_HEADER);
+			}
+		}
+
+		/**
+		 * 압축기 반납(보관 수 초과 시 해제)
+		 */
+		private void release() {
+			if (deflater == null) {
+				return;
+			}
+			ArrayDeque<Deflater> pool = (gzip ? GZIP_DEFLATERS : ZLIB_DEFLATERS).get();
+			if (pool.size() < MAX_POOLED_DEFLATERS) {
+				deflater.reset();
+				pool.push(deflater);
+			} else {
+				deflater.end();
+			}
+			deflater = null;
+		}
+	}
+
+	/**
+	 * 응답 대기 요청 정보
+	 */
+	private static final class Request {
+		/** Accept-Encoding */
+		private final String acceptEncoding;
+		/** keep-alive 여부 */
+		private final boolean keepAlive;
+
+		/**
+		 * 생성자
+		 * @param acceptEncoding Accept-Encoding
+		 * @param keepAlive keep-alive 여부
+		 */
+		Request(String acceptEncoding, boolean keepAlive) {
+			this.acceptEncoding = acceptEncoding;
+			this.keepAlive = keepAlive;
+		}
+	}
+
+	/**
+	 * 목적지 요청 헤더 지정 핸들러(응답 압축 협상, keep-alive, Content-Length)
+	 */
+	@Sharable
+	private static final class RequestHeaders extends ChannelOutboundHandlerAdapter {
+		@Override
+		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+			if (msg instanceof FullHttpRequest) {
+				FullHttpRequest request = (FullHttpRequest) msg;
+				if (ENABLED) {
+					request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP_DEFLATE);
+				}
+				HttpUtil.setKeepAlive(request, true);
+				HttpUtil.setContentLength(request, request.content().readableBytes());
+			}
+			ctx.write(msg, promise);
+		}
+	}
+}
@@ -42,6 +42,8 @@ public class OnlineClientHttpSndHandler extends SimpleChannelInboundHandler<Obje
 	 */
 	@Override
 	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		//목적지 http 응답 압축 해제 및 Content-Length/keep-alive 처리(connect 리스너에서 이미 추가했으면 생략)
+		OnlineClientHttpCompressor.installClient(ctx);
 		ChannelManager.setSndChannelMap(channelVO.getChnlId(), 1, ctx.channel());
 	}
 	
@@ -50,10 +52,16 @@ public class OnlineClientHttpSndHandler extends SimpleChannelInboundHandler<Obje
 	 */
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
+		//메시지 단위 설정 스냅샷
+		final ChannelVO channelVO = OnlineClientConfig.channelVO(this.channelVO);
 		if(msg instanceof FullHttpResponse) {
+			final OnlineClientEvents.ResponseEvent event = new OnlineClientEvents.ResponseEvent();
+			event.start();
 			final byte[] bytearray = ByteBufUtil.getBytes(((FullHttpResponse) msg).content());
 			String tlgrmId = ((FullHttpResponse) msg).headers().get("telegram-id");
 			String MsgKey = ((FullHttpResponse) msg).headers().get("message-key");
+			OnlineClientFlightRecorder.record(channelVO, OnlineClientFlightRecorder.REMOTE_RCV, 1, MsgKey, bytearray);
+			event.parseNanos = event.lap();
 			//1.1. 체널 체크
 			if(inboundChannel != null && inboundChannel.isActive()) {
 				//1.1.1. 내부 tcp 인경우
@@ -64,10 +72,14 @@ public class OnlineClientHttpSndHandler extends SimpleChannelInboundHandler<Obje
 				} else if("http".equals(channelVO.getLocalPrtcl())) {
 					inboundChannel.writeAndFlush(HttpResponseMessage.http200(Unpooled.wrappedBuffer(bytearray), tlgrmId, MsgKey));
 				}
+				event.convertNanos = event.lap();
+				event.outcome = "ROUTED";
 			//1.2. 채널이 없거나 종료 되었을 시 
 			} else {
 				log.error(LoggingFormat.format(channelVO.getChnlId(), "Not connected to local channel. Message", bytearray, channelVO.getRemoteCharset()));
+				event.outcome = "NOT CONNECTED";
 			}
+			event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
 		}
 	}
 
@@ -0,0 +1,117 @@
+package com.tm.online;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import com.tm.db.app.vo.ChannelVO;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 다수 채널 병렬 기동 모듈
+ *
+ * <p>설정된 채널을 동시에 기동하며, 채널별로 송신 세션이 정족수만큼 준비된 뒤 로컬 리스너를 오픈합니다.
+ * 기동 중에도 채널별 대기 스레드를 점유하지 않으므로 채널 수와 무관하게 모든 채널의 세션 준비 대기가 동시에 진행되며,
+ * 리스너 종료 시 해당 채널 자원을 해제합니다.</p>
+ *
+ * <p>lombok 어노테이션 사용으로 생성자 및 Getter/Setter 메서드가 자동으로 생성되어 java 도큐먼트에 표현되지 않습니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ * @see com.tm.online.OnlineClient#open()
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OnlineClientLauncher {
+	/** 채널 정보 목록 */
+	private final List<ChannelVO> channelList;
+
+	/** 리스너 오픈 전 준비되어야 할 송신 세션 비율 */
+	@Setter
+	private double sessionQuorum = 1;
+
+	/** 송신 세션 준비 최대 대기 시간(ms) */
+	@Setter
+	private long sessionWaitMillis = 10000;
+
+	/** 기동된 채널 목록(채널아이디, 클라이언트) */
+	@Getter
+	private final Map<String, OnlineClient> clientMap = new ConcurrentHashMap<>();
+
+	/** 채널별 기동 소요 시간(채널아이디, ms) */
+	@Getter
+	private final Map<String, Long> startupMillisMap = new ConcurrentHashMap<>();
+
+	/**
+	 * 전체 채널 병렬 기동(모든 채널의 기동 시도가 끝나면 반환)
+	 * @throws InterruptedException 인터럽트 발생 시
+	 */
+	public void launch() throws InterruptedException {
+		long time = System.nanoTime();
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (ChannelVO channelVO : channelList) {
+			futures.add(open(channelVO));
+		}
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+		} catch (ExecutionException e) {
+			log.error("[Launcher] STARTUP EXCEPTION", e.getCause());
+		}
+		log.info("[Launcher] STARTUP channels: {}/{}, total: {}ms", clientMap.size(), channelList.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time));
+	}
+
+	/**
+	 * 전체 채널 종료
+	 */
+	public void shutdown() {
+		for (OnlineClient client : clientMap.values()) {
+			client.close();
+		}
+		clientMap.clear();
+	}
+
+	/**
+	 * 채널 기동
+	 * @param channelVO 채널 정보 객체
+	 * @return 기동 시도 완료 시 완료되는 future(실패 시에도 정상 완료)
+	 */
+	private CompletableFuture<Void> open(final ChannelVO channelVO) {
+		final long time = System.nanoTime();
+		final OnlineClient client = new OnlineClient(channelVO);
+		client.setSessionQuorum(sessionQuorum);
+		client.setSessionWaitMillis(sessionWaitMillis);
+		return client.open().handle(new BiFunction<Channel, Throwable, Void>() {
+			@Override
+			public Void apply(Channel channel, Throwable cause) {
+				startupMillisMap.put(channelVO.getChnlId(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time));
+				if (cause != null) {
+					log.error("[Channel: {}] STARTUP FAIL", channelVO.getChnlId(), cause);
+					client.close();
+					return null;
+				}
+				clientMap.put(channelVO.getChnlId(), client);
+				channel.closeFuture().addListener(new ChannelFutureListener() {
+					@Override
+					public void operationComplete(ChannelFuture future) throws Exception {
+						log.info("[Channel: {}] Shutting down online server.", channelVO.getChnlId());
+						clientMap.remove(channelVO.getChnlId(), client);
+						client.close();
+					}
+				});
+				return null;
+			}
+		});
+	}
+}
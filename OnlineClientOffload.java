@@ -0,0 +1,291 @@
+package com.tm.online;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.tm.db.app.vo.ChannelVO;
+import com.tm.service.RedisService;
+import com.tm.utils.BeanUtil;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 채널별 블로킹 작업(redis, 로깅 등) 분리 실행 모듈
+ *
+ * <p>이벤트루프에서 블로킹 작업을 직접 호출하지 않도록 채널별 실행기로 위임하고, 결과는 호출한 이벤트루프에서 이어서 처리합니다.
+ * 동일한 메시지 키는 항상 동일한 단일 스레드 실행기로 배정되어 순서가 보장됩니다.</p>
+ *
+ * <p>시스템 속성 tm.offload.threads(기본 ssnCnt), tm.offload.queue(실행기당 최대 대기 작업 건수, 기본 10000)로 설정하며,
+ * tm.offload.[채널아이디].threads, tm.offload.[채널아이디].queue 로 채널별 값을 지정할 수 있습니다.
+ * 채널 종료 후 호출된 작업은 실행기를 다시 생성하지 않고 거절합니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ */
+@Slf4j
+public class OnlineClientOffload {
+	/** 채널별 실행기 */
+	private static final ConcurrentHashMap<String, OnlineClientOffload> offloadMap = new ConcurrentHashMap<>();
+
+	/** 실행기당 최대 대기 작업 건수 기본값 */
+	private static final int MAX_PENDING_TASKS = 10000;
+
+	/** redis 서비스 */
+	private static volatile RedisService redisService;
+
+	/** 채널아이디 */
+	private final String chnlId;
+	/** 단일 스레드 실행기 목록 */
+	private final EventExecutor[] executors;
+	/** 종료 여부 */
+	private volatile boolean closed;
+
+	/** 처리 건수 */
+	private final AtomicLong taskCnt = new AtomicLong();
+	/** 누적 대기 시간(ns) */
+	private final AtomicLong queueTime = new AtomicLong();
+	/** 최대 대기 시간(ns) */
+	private final AtomicLong maxQueueTime = new AtomicLong();
+	/** 거절 건수 */
+	private final AtomicLong rejectCnt = new AtomicLong();
+
+	/**
+	 * 생성자
+	 * @param channelVO 채널 정보 객체
+	 */
+	private OnlineClientOffload(ChannelVO channelVO) {
+		this.chnlId = channelVO.getChnlId();
+		DefaultThreadFactory threadFactory = new DefaultThreadFactory("offload-" + chnlId, true);
+		int maxPendingTasks = Math.max(property(chnlId, "queue", MAX_PENDING_TASKS), 16);
+		this.executors = new EventExecutor[Math.max(property(chnlId, "threads", channelVO.getSsnCnt()), 1)];
+		for (int i = 0; i < executors.length; i++) {
+			executors[i] = new DefaultEventExecutor(null, threadFactory, maxPendingTasks, RejectedExecutionHandlers.reject());
+		}
+	}
+
+	/**
+	 * 생성자(종료된 채널용, 모든 작업 거절)
+	 * @param chnlId 채널아이디
+	 */
+	private OnlineClientOffload(String chnlId) {
+		this.chnlId = chnlId;
+		this.executors = new EventExecutor[0];
+		this.closed = true;
+	}
+
+	/**
+	 * 채널별 실행기 생성(채널 기동 시 호출)
+	 * @param channelVO 채널 정보 객체
+	 * @return 실행기
+	 */
+	public static OnlineClientOffload init(ChannelVO channelVO) {
+		OnlineClientOffload offload = new OnlineClientOffload(channelVO);
+		OnlineClientOffload prev = offloadMap.put(channelVO.getChnlId(), offload);
+		if (prev != null) {
+			prev.shutdown();
+		}
+		log.info("[Channel: {}] OFFLOAD threads: {}", offload.chnlId, offload.executors.length);
+		return offload;
+	}
+
+	/**
+	 * 채널별 실행기 조회
+	 * <p>종료 후에는 실행기를 다시 생성하지 않고 작업을 거절하는 객체를 반환합니다.</p>
+	 * @param channelVO 채널 정보 객체
+	 * @return 실행기
+	 */
+	public static OnlineClientOffload get(ChannelVO channelVO) {
+		OnlineClientOffload offload = offloadMap.get(channelVO.getChnlId());
+		return offload == null ? new OnlineClientOffload(channelVO.getChnlId()) : offload;
+	}
+
+	/**
+	 * 채널별 실행기 종료
+	 * @param channelVO 채널 정보 객체
+	 * @return 종료된 실행기, 없을 시 null
+	 */
+	public static OnlineClientOffload remove(ChannelVO channelVO) {
+		OnlineClientOffload offload = offloadMap.remove(channelVO.getChnlId());
+		if (offload != null) {
+			offload.shutdown();
+		}
+		return offload;
+	}
+
+	/**
+	 * 채널별 설정값 조회(채널별 값, 공통 값, 기본값 순)
+	 * @param chnlId 채널아이디
+	 * @param name 속성명
+	 * @param def 기본값
+	 * @return 설정값
+	 */
+	private static int property(String chnlId, String name, int def) {
+		return Integer.getInteger("tm.offload." + chnlId + "." + name, Integer.getInteger("tm.offload." + name, def));
+	}
+
+	/**
+	 * redis 서비스 조회(최초 1회만 bean 조회)
+	 * @return redis 서비스
+	 */
+	public static RedisService redisService() {
+		if (redisService == null) {
+			redisService = (RedisService) BeanUtil.getBean("redisService");
+		}
+		return redisService;
+	}
+
+	/**
+	 * 블로킹 작업 위임
+	 * <p>반환된 Future 의 리스너는 ctx 의 이벤트루프에서 실행됩니다.</p>
+	 * @param ctx 채널 Context 객체
+	 * @param key 순서 보장 키정보
+	 * @param task 블로킹 작업
+	 * @return 작업 결과
+	 */
+	public <T> Future<T> submit(ChannelHandlerContext ctx, String key, final Callable<T> task) {
+		final Promise<T> promise = ctx.executor().newPromise();
+		if (closed) {
+			rejectCnt.incrementAndGet();
+			return promise.setFailure(new RejectedExecutionException("offload closed: " + chnlId));
+		}
+		final long submitTime = System.nanoTime();
+		try {
+			executor(key).execute(new Runnable() {
+				@Override
+				public void run() {
+					record(System.nanoTime() - submitTime);
+					try {
+						promise.trySuccess(task.call());
+					} catch (Throwable e) {
+						promise.tryFailure(e);
+					}
+				}
+			});
+		} catch (Throwable e) {
+			rejectCnt.incrementAndGet();
+			promise.tryFailure(e);
+		}
+		return promise;
+	}
+
+	/**
+	 * 결과가 필요 없는 블로킹 작업 위임
+	 * @param key 순서 보장 키정보
+	 * @param task 블로킹 작업
+	 */
+	public void execute(String key, final Runnable task) {
+		if (closed) {
+			rejectCnt.incrementAndGet();
+			log.warn("[Channel: {}] OFFLOAD REJECT: closed", chnlId);
+			return;
+		}
+		final long submitTime = System.nanoTime();
+		try {
+			executor(key).execute(new Runnable() {
+				@Override
+				public void run() {
+					record(System.nanoTime() - submitTime);
+					try {
+						task.run();
+					} catch (Throwable e) {
+						log.error("[Channel: {}] OFFLOAD EXCEPTION", chnlId, e);
+					}
+				}
+			});
+		} catch (Throwable e) {
+			rejectCnt.incrementAndGet();
+			log.error("[Channel: {}] OFFLOAD REJECT", chnlId, e);
+		}
+	}
+
+	/**
+	 * 처리 건수 조회
+	 * @return 처리 건수
+	 */
+	public long getTaskCnt() {
+		return taskCnt.get();
+	}
+
+	/**
+	 * 평균 대기 시간 조회
+	 * @return 평균 대기 시간(us)
+	 */
+	public long getAvgQueueMicros() {
+		long cnt = taskCnt.get();
+		return cnt == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueTime.get() / cnt);
+	}
+
+	/**
+	 * 최대 대기 시간 조회
+	 * @return 최대 대기 시간(us)
+	 */
+	public long getMaxQueueMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxQueueTime.get());
+	}
+
+	/**
+	 * 거절 건수 조회
+	 * @return 거절 건수
+	 */
+	public long getRejectCnt() {
+		return rejectCnt.get();
+	}
+
+	/**
+	 * 키정보로 실행기 선택
+	 * @param key 순서 보장 키정보
+	 * @return 실행기
+	 */
+	private EventExecutor executor(String key) {
+		int hash = key == null ? 0 : key.hashCode();
+		return executors[(hash & Integer.MAX_VALUE) % executors.length];
+	}
+
+	/**
+	 * 대기 시간 기록
+	 * @param nanos 대기 시간(ns)
+	 */
+	private void record(long nanos) {
+		taskCnt.incrementAndGet();
+		queueTime.addAndGet(nanos);
+		long max = maxQueueTime.get();
+		while (nanos > max && !maxQueueTime.compareAndSet(max, nanos)) {
+			max = maxQueueTime.get();
+		}
+	}
+
+	/**
+	 * 실행기 종료 future 목록 조회
+	 * @return 종료 future 목록
+	 */
+	public List<Future<?>> terminationFutures() {
+		List<Future<?>> futures = new ArrayList<>();
+		for (EventExecutor executor : executors) {
+			futures.add(executor.terminationFuture());
+		}
+		return futures;
+	}
+
+	/**
+	 * 실행기 종료
+	 */
+	private void shutdown() {
+		closed = true;
+		log.info("[Channel: {}] OFFLOAD STAT count: {}, avg queue: {}us, max queue: {}us, reject: {}", chnlId, getTaskCnt(), getAvgQueueMicros(), getMaxQueueMicros(), getRejectCnt());
+		for (EventExecutor executor : executors) {
+			executor.shutdownGracefully();
+		}
+	}
+}
@@ -50,18 +50,22 @@ public class OnlineClientRemoteHttpHandler extends SimpleChannelInboundHandler<O
 		
 		InetSocketAddress socketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
 		//무시아이피 체크
-		if(ConstantFactory.isIgnoreIp(channelVO.getChnlId(), socketAddress.getAddress().getHostAddress())) {
+		if(ConstantFactory.isIgnoreIp(OnlineClientConfig.source(channelVO.getChnlId()), socketAddress.getAddress().getHostAddress())) {
 			log.debug(LoggingFormat.formatSimple(channelVO.getChnlId(), "System is ignore. remote address", ctx.channel().remoteAddress()));
 			ctx.close();
 			return;
 		}
 		//허용아이피 체크
-		if(!ConstantFactory.isAllowedIp(channelVO.getChnlId(), socketAddress.getAddress().getHostAddress())) {
+		if(!ConstantFactory.isAllowedIp(OnlineClientConfig.source(channelVO.getChnlId()), socketAddress.getAddress().getHostAddress())) {
 			log.info(LoggingFormat.formatSimple(channelVO.getChnlId(), "System is not allowed. remote address", ctx.channel().remoteAddress()));
 			ctx.close();
 			return;
 		}		
 		
+		//로컬 http 본문 압축 및 Content-Length/keep-alive 처리
+		if("http".equals(channelVO.getLocalPrtcl())) {
+			OnlineClientHttpCompressor.install(ctx);
+		}
 		ChannelManager.setRcvChannelMap(channelVO.getChnlId(), ctx.channel());
 		log.info(LoggingFormat.formatSimple(channelVO.getChnlId(), "OPEN", ctx.channel().remoteAddress()));	
 	}
@@ -71,10 +75,16 @@ public class OnlineClientRemoteHttpHandler extends SimpleChannelInboundHandler<O
 	 */
 	@Override
 	public void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
+		//메시지 단위 설정 스냅샷
+		final ChannelVO channelVO = OnlineClientConfig.channelVO(this.channelVO);
+		final OnlineClientEvents.InboundEvent event = new OnlineClientEvents.InboundEvent();
+		event.start();
 		if(msg instanceof ByteBuf) {
 			final byte[] bytearray = ByteBufUtil.getBytes(((ByteBuf) msg));
 			final String tlgrmId = TextUtil.substringB(bytearray, channelVO.getTlgrmIdSrtPt(), channelVO.getTlgrmIdLen(), channelVO.getLocalCharset());
 			final String MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getLocalCharset());
+			OnlineClientFlightRecorder.record(channelVO, OnlineClientFlightRecorder.LOCAL_RCV, 0, MsgKey, bytearray);
+			event.parseNanos = event.lap();
 
 			if(outboundChannel == null || !(outboundChannel.isActive())) {
 				NettyClientBootstrap client = new NettyClientBootstrap();
@@ -87,24 +97,36 @@ public class OnlineClientRemoteHttpHandler extends SimpleChannelInboundHandler<O
 					public void operationComplete(ChannelFuture future) throws Exception {
 						if (future.isSuccess()) {
 								outboundChannel = future.channel();
+								event.connectNanos = event.lap();
+								//channelActive 보다 먼저 호출되므로 첫 요청 전에 해제/요청 헤더 핸들러 추가
+								OnlineClientHttpCompressor.installClient(outboundChannel);
 								//byte[] -> LinkedHashMap -> Json -> ByteBuf
-								outboundChannel.writeAndFlush(HttpRequestMessage.request(Unpooled.wrappedBuffer(JsonUtil.convertPojoToJson(MessageConvert.messageToJson(channelVO.getChnlId(), tlgrmId, bytearray, channelVO.getDataPfxLen(), channelVO.getLocalCharset())).getBytes(channelVO.getRemoteCharset())), channelVO.getHttpPath(), tlgrmId, MsgKey));
+								outboundChannel.writeAndFlush(HttpRequestMessage.request(OnlineClientHttpCompressor.buffer(outboundChannel.alloc(), JsonUtil.convertPojoToJson(MessageConvert.messageToJson(channelVO.getChnlId(), tlgrmId, bytearray, channelVO.getDataPfxLen(), channelVO.getLocalCharset())), channelVO.getRemoteCharset()), channelVO.getHttpPath(), tlgrmId, MsgKey));
+								event.convertNanos = event.lap();
+								event.outcome = "SENT";
 						} else {
+							event.outcome = "CONNECT FAIL";
 							if (future.cause() != null) {
 								log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "CONNECT FAIL", future.cause()));
 							}
 						}
+						event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
 					}
 				});
 			} else {
 				//byte[] -> LinkedHashMap -> Json -> ByteBuf
-				outboundChannel.writeAndFlush(HttpRequestMessage.request(Unpooled.wrappedBuffer(JsonUtil.convertPojoToJson(MessageConvert.messageToJson(channelVO.getChnlId(), tlgrmId, bytearray, channelVO.getDataPfxLen(), channelVO.getLocalCharset())).getBytes(channelVO.getRemoteCharset())), channelVO.getHttpPath(), tlgrmId, MsgKey));
+				outboundChannel.writeAndFlush(HttpRequestMessage.request(OnlineClientHttpCompressor.buffer(outboundChannel.alloc(), JsonUtil.convertPojoToJson(MessageConvert.messageToJson(channelVO.getChnlId(), tlgrmId, bytearray, channelVO.getDataPfxLen(), channelVO.getLocalCharset())), channelVO.getRemoteCharset()), channelVO.getHttpPath(), tlgrmId, MsgKey));
+				event.convertNanos = event.lap();
+				event.outcome = "SENT";
+				event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
 			}
 		} else if(msg instanceof FullHttpRequest) {
 			
 			final byte[] bytearray = ByteBufUtil.getBytes(((FullHttpRequest) msg).content());
 			final String tlgrmId = ((FullHttpRequest) msg).headers().get("telegram-id");
 			final String MsgKey = ((FullHttpRequest) msg).headers().get("message-key");
+			OnlineClientFlightRecorder.record(channelVO, OnlineClientFlightRecorder.LOCAL_RCV, 0, MsgKey, bytearray);
+			event.parseNanos = event.lap();
 			if(outboundChannel == null || !(outboundChannel.isActive())) {
 				NettyClientBootstrap client = new NettyClientBootstrap();
 				client.setWorkerGroup(ctx.channel().eventLoop());
@@ -117,16 +139,26 @@ public class OnlineClientRemoteHttpHandler extends SimpleChannelInboundHandler<O
 					public void operationComplete(ChannelFuture future) throws Exception {
 						if (future.isSuccess()) {
 								outboundChannel = future.channel();
+								event.connectNanos = event.lap();
+								//channelActive 보다 먼저 호출되므로 첫 요청 전에 해제/요청 헤더 핸들러 추가
+								OnlineClientHttpCompressor.installClient(outboundChannel);
 								outboundChannel.writeAndFlush(HttpRequestMessage.request(Unpooled.wrappedBuffer(bytearray), channelVO.getHttpPath(), tlgrmId, MsgKey));
+								event.convertNanos = event.lap();
+								event.outcome = "SENT";
 						} else {
+							event.outcome = "CONNECT FAIL";
 							if (future.cause() != null) {
 								log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "CONNECT FAIL", future.cause()));
 							}
 						}
+						event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
 					}
 				}); 
 			} else {
 				outboundChannel.writeAndFlush(HttpRequestMessage.request(Unpooled.wrappedBuffer(bytearray), channelVO.getHttpPath(), tlgrmId, MsgKey));
+				event.convertNanos = event.lap();
+				event.outcome = "SENT";
+				event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
 			}
 		} 
 	}	
@@ -2,13 +2,12 @@ package com.tm.online;
 
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
 
 import com.tm.constant.ConstantFactory;
 import com.tm.db.app.vo.ChannelVO;
 import com.tm.logging.LoggingFormat;
 import com.tm.online.message.MessageConvert;
-import com.tm.service.RedisService;
-import com.tm.utils.BeanUtil;
 import com.tm.utils.JsonUtil;
 import com.tm.utils.TextUtil;
 
@@ -20,6 +19,8 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -41,10 +42,6 @@ public class OnlineClientRemoteTcpHandler extends SimpleChannelInboundHandler<Ob
 	/** 송신 채널 */
 	private final Channel outboundChannel; 
 	
-	/** redis 서비스 */
-	private RedisService redisService = (RedisService) BeanUtil.getBean("redisService");
-
-	
 	/**
 	 * 채널이 접속되자마자 실행할 코드를 정의
 	 */
@@ -53,18 +50,22 @@ public class OnlineClientRemoteTcpHandler extends SimpleChannelInboundHandler<Ob
 		
 		InetSocketAddress socketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
 		//무시아이피 체크
-		if(ConstantFactory.isIgnoreIp(channelVO.getChnlId(), socketAddress.getAddress().getHostAddress())) {
+		if(ConstantFactory.isIgnoreIp(OnlineClientConfig.source(channelVO.getChnlId()), socketAddress.getAddress().getHostAddress())) {
 			log.debug(LoggingFormat.formatSimple(channelVO.getChnlId(), "System is ignore. remote address", ctx.channel().remoteAddress()));
 			ctx.close();
 			return;
 		}
 		//허용아이피 체크
-		if(!ConstantFactory.isAllowedIp(channelVO.getChnlId(), socketAddress.getAddress().getHostAddress())) {
+		if(!ConstantFactory.isAllowedIp(OnlineClientConfig.source(channelVO.getChnlId()), socketAddress.getAddress().getHostAddress())) {
 			log.info(LoggingFormat.formatSimple(channelVO.getChnlId(), "System is not allowed. remote address", ctx.channel().remoteAddress()));
 			ctx.close();
 			return;
 		}		
 		
+		//로컬 http 본문 압축 및 Content-Length/keep-alive 처리
+		if("http".equals(channelVO.getLocalPrtcl())) {
+			OnlineClientHttpCompressor.install(ctx);
+		}
 		ChannelManager.setRcvChannelMap(channelVO.getChnlId(), ctx.channel());
 		log.info(LoggingFormat.formatSimple(channelVO.getChnlId(), "OPEN", ctx.channel().remoteAddress()));
 	}
@@ -74,27 +75,67 @@ public class OnlineClientRemoteTcpHandler extends SimpleChannelInboundHandler<Ob
 	 */
 	@Override
 	public void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
+		//메시지 단위 설정 스냅샷
+		final ChannelVO channelVO = OnlineClientConfig.channelVO(this.channelVO);
+		final OnlineClientEvents.InboundEvent event = new OnlineClientEvents.InboundEvent();
+		event.start();
 		if(msg instanceof ByteBuf) {
 			final byte[] bytearray = ByteBufUtil.getBytes(((ByteBuf) msg));
 			final String tlgrmId = TextUtil.substringB(bytearray, channelVO.getTlgrmIdSrtPt(), channelVO.getTlgrmIdLen(), channelVO.getLocalCharset());
 			final String MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getLocalCharset());
-			//1. redis 등록
-			redisService.setRedis(TextUtil.concat(channelVO.getChnlId(), MsgKey), ctx.channel().id().asLongText());
-			//2. 메시지 전송
-			outboundChannel.writeAndFlush(Unpooled.wrappedBuffer(bytearray));
+			OnlineClientFlightRecorder.record(channelVO, OnlineClientFlightRecorder.LOCAL_RCV, 0, MsgKey, bytearray);
+			event.parseNanos = event.lap();
+			//1. redis 등록 후 2. 메시지 전송
+			register(ctx, tlgrmId, MsgKey, Unpooled.wrappedBuffer(bytearray), event);
 		} else if(msg instanceof FullHttpRequest) {
 			final byte[] bytearray = ByteBufUtil.getBytes(((FullHttpRequest) msg).content());
 			final String tlgrmId = ((FullHttpRequest) msg).headers().get("telegram-id");
 			final String MsgKey = ((FullHttpRequest) msg).headers().get("message-key");
-			//1. redis 등록
-			redisService.setRedis(TextUtil.concat(channelVO.getChnlId(), MsgKey), ctx.channel().id().asLongText());
-			//2. 메시지 변환 후 전송
+			OnlineClientFlightRecorder.record(channelVO, OnlineClientFlightRecorder.LOCAL_RCV, 0, MsgKey, bytearray);
+			event.parseNanos = event.lap();
 			//byte[] -> Json -> LinkedHashMap -> String -> ByteBuf
-			outboundChannel.writeAndFlush(Unpooled.wrappedBuffer(MessageConvert.jsonToMessageCombine(channelVO.getChnlId(), tlgrmId, JsonUtil.convertJsonToLinkedHashMap(new String(bytearray, Charset.forName("utf-8"))), channelVO.getDataPfxLen(), channelVO.getRemoteCharset()).getBytes(channelVO.getRemoteCharset())));
+			final ByteBuf message = Unpooled.wrappedBuffer(MessageConvert.jsonToMessageCombine(channelVO.getChnlId(), tlgrmId, JsonUtil.convertJsonToLinkedHashMap(new String(bytearray, Charset.forName("utf-8"))), channelVO.getDataPfxLen(), channelVO.getRemoteCharset()).getBytes(channelVO.getRemoteCharset()));
+			event.convertNanos = event.lap();
+			//1. redis 등록 후 2. 메시지 변환 후 전송
+			register(ctx, tlgrmId, MsgKey, message, event);
 		}
 			
 	}	
 
+	/**
+	 * redis 등록을 실행기에서 처리한 뒤 이벤트루프에서 메시지 전송
+	 * @param ctx 수신채널
+	 * @param tlgrmId 전문아이디
+	 * @param MsgKey 메시지 키
+	 * @param message 송신 메시지
+	 * @param event 처리 단계 측정 이벤트
+	 */
+	private void register(final ChannelHandlerContext ctx, final String tlgrmId, final String MsgKey, final ByteBuf message, final OnlineClientEvents.InboundEvent event) {
+		final String key = TextUtil.concat(channelVO.getChnlId(), MsgKey);
+		final String channelId = ctx.channel().id().asLongText();
+		OnlineClientOffload.get(channelVO).submit(ctx, key, new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				OnlineClientOffload.redisService().setRedis(key, channelId);
+				return null;
+			}
+		}).addListener(new FutureListener<Void>() {
+			@Override
+			public void operationComplete(Future<Void> future) throws Exception {
+				event.redisNanos = event.lap();
+				if (future.isSuccess()) {
+					outboundChannel.writeAndFlush(message);
+					event.outcome = "SENT";
+				} else {
+					message.release();
+					event.outcome = "REDIS FAIL";
+					log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "REDIS FAIL", future.cause()));
+				}
+				event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
+			}
+		});
+	}
+
 	/**
 	 * 예외가 발생할 때 동작할 코드를 정의
 	 */
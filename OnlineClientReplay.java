@@ -0,0 +1,260 @@
+package com.tm.online;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.tm.db.app.vo.ChannelVO;
+import com.tm.online.OnlineClientFlightRecorder.Record;
+import com.tm.utils.TextUtil;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.CharsetUtil;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 송수신 기록 재현 모듈
+ *
+ * <p>flight recorder 저장 파일의 로컬 수신 전문을 원래 간격(또는 배속)으로 {@link OnlineClient} 에 다시 송신하고,
+ * 목적지는 기록된 응답 전문을 메시지 키로 찾아 응답하는 모의 서버로 대체합니다. 성능 저하 재현을 위해 응답시간 통계를 반환합니다.
+ * 채널 정보의 목적지 주소는 로컬(모의 서버)로 지정되어 있어야 하며, 로컬/목적지 모두 tcp 인 채널만 지원합니다.</p>
+ *
+ * <p>운영 채널의 설정/실행기/기록 객체와 redis 키(채널아이디 + 메시지 키)를 침범하지 않도록 기록 파일과 다른 재현용 채널아이디를 사용해야 하며,
+ * 같은 JVM 에서 기동중인 채널아이디는 거절합니다. redis 는 운영과 분리된 환경을 사용해야 합니다.
+ * 채널아이디로 등록된 전문 레이아웃(idle 전문 포함)과 허용/무시 IP 는 기록 파일의 원본 채널 설정을 사용하며, 모의 서버는 idle 전문을 그대로 응답합니다.</p>
+ *
+ * <p>lombok 어노테이션 사용으로 생성자 및 Getter/Setter 메서드가 자동으로 생성되어 java 도큐먼트에 표현되지 않습니다.</p>
+ *
+ * @author		: shin
+ * @version		: 2.0.0
+ * @see com.tm.online.OnlineClientFlightRecorder
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OnlineClientReplay {
+	/** 채널 정보 객체(재현용 채널아이디, 목적지는 모의 서버) */
+	private final ChannelVO channelVO;
+	/** 저장 파일 경로 */
+	private final Path capture;
+
+	/** 재현 배속(1: 원래 속도, 0 이하: 대기 없이 연속 송신) */
+	@Setter
+	private double speed = 1;
+
+	/** 송신 완료 후 응답 최대 대기 시간(ms) */
+	@Setter
+	private long drainMillis = 10000;
+
+	/**
+	 * 재현 실행
+	 * @return 재현 결과
+	 * @throws Exception 오류
+	 */
+	public Result replay() throws Exception {
+		if (!"tcp".equals(channelVO.getLocalPrtcl()) || !"tcp".equals(channelVO.getRemotePrtcl())) {
+			throw new IllegalArgumentException("Replay supports tcp channels only: " + channelVO.getChnlId());
+		}
+		if (OnlineClientConfig.get(channelVO.getChnlId()) != null) {
+			throw new IllegalStateException("Channel is running, use a separate replay channel id: " + channelVO.getChnlId());
+		}
+		//1. 기록 분류(로컬 수신: 재송신 대상, 목적지 수신: 모의 응답)
+		final List<Record> requests = new ArrayList<>();
+		final Map<String, byte[]> responses = new HashMap<>();
+		int skipCnt = 0;
+		String source = null;
+		for (Record record : OnlineClientFlightRecorder.read(capture)) {
+			if (channelVO.getChnlId().equals(record.getChnlId())) {
+				throw new IllegalArgumentException("Replay channel id must differ from the captured channel: " + record.getChnlId());
+			}
+			source = record.getChnlId();
+			if (!record.isComplete()) {
+				skipCnt++;
+			} else if (record.getDirection() == OnlineClientFlightRecorder.LOCAL_RCV) {
+				requests.add(record);
+			} else if (record.getDirection() == OnlineClientFlightRecorder.REMOTE_RCV) {
+				responses.put(record.getMsgKey(), record.getData());
+			}
+		}
+
+		//원본 채널의 전문 레이아웃 및 IP 설정 사용
+		if (source != null) {
+			OnlineClientConfig.alias(channelVO.getChnlId(), source);
+		}
+		EventLoopGroup group = new NioEventLoopGroup(2);
+		OnlineClient client = new OnlineClient(channelVO);
+		client.setSessionQuorum(1);
+		try {
+			//2. 모의 목적지 서버
+			ServerBootstrap mock = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class).childHandler(new ChannelInitializer<SocketChannel>() {
+				@Override
+				protected void initChannel(SocketChannel ch) {
+					ch.pipeline().addLast(new PrefixFrameDecoder(channelVO.getDataPfxLen()), new MockRemoteHandler(responses));
+				}
+			});
+			mock.bind(channelVO.getRemotePort()).sync();
+
+			//3. 대상 채널 기동
+			client.open().get();
+
+			//4. 로컬 송신 및 응답시간 측정
+			final Map<String, Long> sndTime = new ConcurrentHashMap<>();
+			final List<Long> latencies = new ArrayList<>();
+			final CountDownLatch latch = new CountDownLatch(requests.size());
+			Channel local = new Bootstrap().group(group).channel(NioSocketChannel.class).handler(new ChannelInitializer<SocketChannel>() {
+				@Override
+				protected void initChannel(SocketChannel ch) {
+					ch.pipeline().addLast(new PrefixFrameDecoder(channelVO.getDataPfxLen()), new SimpleChannelInboundHandler<ByteBuf>() {
+						@Override
+						protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+							String MsgKey = TextUtil.substringB(ByteBufUtil.getBytes(msg), channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getLocalCharset());
+							Long time = sndTime.remove(MsgKey);
+							if (time != null) {
+								synchronized (latencies) {
+									latencies.add(System.nanoTime() - time);
+								}
+								latch.countDown();
+							}
+						}
+					});
+				}
+			}).connect("127.0.0.1", channelVO.getLocalPort()).sync().channel();
+
+			long startTime = System.nanoTime();
+			long firstNanos = requests.isEmpty() ? 0 : requests.get(0).getNanos();
+			for (Record record : requests) {
+				if (speed > 0) {
+					long wait = (long) ((record.getNanos() - firstNanos) / speed) - (System.nanoTime() - startTime);
+					if (wait > 0) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+				}
+				sndTime.put(record.getMsgKey(), System.nanoTime());
+				local.writeAndFlush(Unpooled.wrappedBuffer(record.getData()));
+			}
+			latch.await(drainMillis, TimeUnit.MILLISECONDS);
+			long elapsed = System.nanoTime() - startTime;
+			local.close().sync();
+
+			//5. 결과 집계
+			long[] sorted;
+			synchronized (latencies) {
+				sorted = new long[latencies.size()];
+				for (int i = 0; i < sorted.length; i++) {
+					sorted[i] = latencies.get(i);
+				}
+			}
+			Arrays.sort(sorted);
+			Result result = new Result(requests.size(), sorted.length, skipCnt, TimeUnit.NANOSECONDS.toMillis(elapsed),
+					percentile(sorted, 0.5), percentile(sorted, 0.99), sorted.length == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+			log.info("[Channel: {}] REPLAY {}", channelVO.getChnlId(), result);
+			return result;
+		} finally {
+			client.close();
+			group.shutdownGracefully();
+			OnlineClientConfig.unalias(channelVO.getChnlId());
+		}
+	}
+
+	/**
+	 * 백분위 조회
+	 * @param sorted 정렬된 응답시간(ns)
+	 * @param rate 백분위(0~1)
+	 * @return 응답시간(us)
+	 */
+	private static long percentile(long[] sorted, double rate) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return TimeUnit.NANOSECONDS.toMicros(sorted[(int) Math.ceil((sorted.length - 1) * rate)]);
+	}
+
+	/**
+	 * 재현 결과
+	 */
+	@Getter
+	@ToString
+	@RequiredArgsConstructor
+	public static final class Result {
+		/** 송신 건수 */
+		private final int sndCnt;
+		/** 응답 건수 */
+		private final int rcvCnt;
+		/** 잘린 기록으로 제외된 건수 */
+		private final int skipCnt;
+		/** 소요 시간(ms) */
+		private final long elapsedMillis;
+		/** 응답시간 p50(us) */
+		private final long p50Micros;
+		/** 응답시간 p99(us) */
+		private final long p99Micros;
+		/** 최대 응답시간(us) */
+		private final long maxMicros;
+	}
+
+	/**
+	 * 길이부(숫자 문자열) 기반 전문 분리 디코더
+	 */
+	@RequiredArgsConstructor
+	private static final class PrefixFrameDecoder extends ByteToMessageDecoder {
+		/** 길이부 크기 */
+		private final int dataPfxLen;
+
+		@Override
+		protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+			while (in.readableBytes() >= dataPfxLen) {
+				int length = Integer.parseInt(in.toString(in.readerIndex(), dataPfxLen, CharsetUtil.US_ASCII).trim());
+				if (in.readableBytes() < dataPfxLen + length) {
+					return;
+				}
+				out.add(in.readRetainedSlice(dataPfxLen + length));
+			}
+		}
+	}
+
+	/**
+	 * 기록된 응답으로 응답하는 모의 목적지 핸들러
+	 */
+	@RequiredArgsConstructor
+	private final class MockRemoteHandler extends SimpleChannelInboundHandler<ByteBuf> {
+		/** 기록된 응답(메시지 키, 전문) */
+		private final Map<String, byte[]> responses;
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+			//idle 전문(상태 확인 포함)은 그대로 응답
+			if (channelVO.isIdleBln() && msg.readableBytes() == channelVO.getIdleLen() + channelVO.getDataPfxLen()) {
+				ctx.writeAndFlush(msg.retain());
+				return;
+			}
+			String MsgKey = TextUtil.substringB(ByteBufUtil.getBytes(msg), channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getRemoteCharset());
+			byte[] response = responses.get(MsgKey);
+			if (response != null) {
+				ctx.writeAndFlush(Unpooled.wrappedBuffer(response));
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.tm.online;
 
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import com.tm.bootstrap.NettyClientBootstrap;
@@ -10,7 +12,6 @@ import com.tm.logging.LoggingFormat;
 import com.tm.online.message.HttpResponseMessage;
 import com.tm.online.message.MessageConvert;
 import com.tm.service.RedisService;
-import com.tm.utils.BeanUtil;
 import com.tm.utils.JsonUtil;
 import com.tm.utils.TextUtil;
 
@@ -27,6 +28,8 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -46,17 +49,26 @@ public class OnlineClientTcpSndHandler extends SimpleChannelInboundHandler<Objec
 	private final ChannelVO channelVO;
 	/** 채널 순번 **/
 	private final int chnlSeq;
-	/** redis 서비스 */
-	private RedisService redisService = (RedisService) BeanUtil.getBean("redisService");
-
 	
 	/**
 	 * 채널이 접속되자마자 실행할 코드를 정의
 	 */
 	@Override
 	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		//재적재로 축소된 세션은 종료
+		if(!isSession()) {
+			ctx.close();
+			return;
+		}
+		session(ctx, true);
 		ChannelManager.setSndChannelMap(channelVO.getChnlId(), chnlSeq, ctx.channel());
 		log.info(LoggingFormat.formatSimple(channelVO.getChnlId(), "CONNECT", ctx.channel().remoteAddress()));
+		//상태 확인(idle 사용 시 idle 전문 응답 수신 후 완료, 미사용 시 접속 완료로 판단)
+		if(OnlineClientConfig.channelVO(channelVO).isIdleBln()) {
+			ctx.writeAndFlush(getIdle().getBytes());
+		} else {
+			ready(ctx);
+		}
 	}
 	
 	/**
@@ -65,45 +77,145 @@ public class OnlineClientTcpSndHandler extends SimpleChannelInboundHandler<Objec
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
 		if(msg instanceof ByteBuf) {
+			//메시지 단위 설정 스냅샷(재적재로 전문 키 위치가 바뀐 경우 송신 시점의 이전 버전 포함)
+			final List<ChannelVO> candidates = OnlineClientConfig.candidates(this.channelVO);
+			final ChannelVO channelVO = candidates.get(0);
+			final OnlineClientEvents.ResponseEvent event = new OnlineClientEvents.ResponseEvent();
+			event.start();
 			final byte[] bytearray = ByteBufUtil.getBytes(((ByteBuf) msg));
 			//idle 사용시
 			if(channelVO.isIdleBln()) {
 				if(bytearray.length == (channelVO.getIdleLen()+ channelVO.getDataPfxLen())) {
+					ready(ctx);
 					return;
 				}
 			}
-			String tlgrmId = TextUtil.substringB(bytearray, channelVO.getTlgrmIdSrtPt(), channelVO.getTlgrmIdLen(), channelVO.getRemoteCharset());
-			String MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getRemoteCharset());
-			//1. redis에 등록 여부 체크(전송시 등록)
-			if(redisService.nullString(TextUtil.concat(channelVO.getChnlId(), MsgKey))) {
-				//1.1. 양방향일시 만 응답 전송
-				if(redisService.isRedis(TextUtil.concat(channelVO.getChnlId(), MsgKey))) {
-					//1.1.1. redis를 이용하여 수신 받은 내부채널 조회
-					final Channel channel = ChannelManager.getRcvChannel(redisService.getRedis(TextUtil.concat(channelVO.getChnlId(), MsgKey)));
-					//1.1.2. 체널 체크
-					if(channel != null && channel.isActive()) {
-						//1.1.1.1. 내부 tcp 인경우
-						if("tcp".equals(channelVO.getLocalPrtcl())) {
-							channel.writeAndFlush(Unpooled.wrappedBuffer(bytearray));
-						//1.1.1.2. 내부 http 인경우
-						} else if("http".equals(channelVO.getLocalPrtcl())) {
-							//byte[] -> LinkedHashMap -> Json -> ByteBuf
-							channel.writeAndFlush(HttpResponseMessage.http200(Unpooled.wrappedBuffer(JsonUtil.convertPojoToJson(MessageConvert.messageToJson(channelVO.getChnlId(), tlgrmId, bytearray, channelVO.getDataPfxLen(), channelVO.getRemoteCharset())).getBytes(channelVO.getLocalCharset())), tlgrmId, MsgKey));
-						}
-					//1.1.3. 채널이 없거나 종료 되었을 시 
-					} else {
-						log.error(LoggingFormat.format(channelVO.getChnlId(), "Not connected to local channel. Message", bytearray, channelVO.getRemoteCharset()));
+			final String tlgrmId = TextUtil.substringB(bytearray, channelVO.getTlgrmIdSrtPt(), channelVO.getTlgrmIdLen(), channelVO.getRemoteCharset());
+			final String MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getRemoteCharset());
+			final String key = TextUtil.concat(channelVO.getChnlId(), MsgKey);
+			OnlineClientFlightRecorder.record(channelVO, OnlineClientFlightRecorder.REMOTE_RCV, chnlSeq, MsgKey, bytearray);
+			event.parseNanos = event.lap();
+			//redis 조회/삭제는 실행기에서 처리 후 응답 전송은 이벤트루프에서 처리
+			OnlineClientOffload.get(channelVO).submit(ctx, key, new Callable<Route>() {
+				@Override
+				public Route call() throws Exception {
+					return route(candidates, bytearray, event);
+				}
+			}).addListener(new FutureListener<Route>() {
+				@Override
+				public void operationComplete(Future<Route> future) throws Exception {
+					if (!future.isSuccess()) {
+						log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "REDIS FAIL", future.cause()));
+						event.outcome = "REDIS FAIL";
+						event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
+						return;
+					}
+					final Route route = future.getNow();
+					final Channel channel = route.channel;
+					if (channel == null) {
+						event.end(channelVO.getChnlId(), route.tlgrmId, route.MsgKey);
+						return;
+					}
+					//송신 시점의 설정 스냅샷으로 변환
+					final ChannelVO sndChannelVO = route.channelVO;
+					//1.1.1.1. 내부 tcp 인경우
+					if("tcp".equals(sndChannelVO.getLocalPrtcl())) {
+						channel.writeAndFlush(Unpooled.wrappedBuffer(bytearray));
+					//1.1.1.2. 내부 http 인경우
+					} else if("http".equals(sndChannelVO.getLocalPrtcl())) {
+						//byte[] -> LinkedHashMap -> Json -> ByteBuf
+						channel.writeAndFlush(HttpResponseMessage.http200(OnlineClientHttpCompressor.buffer(channel.alloc(), JsonUtil.convertPojoToJson(MessageConvert.messageToJson(sndChannelVO.getChnlId(), route.tlgrmId, bytearray, sndChannelVO.getDataPfxLen(), sndChannelVO.getRemoteCharset())), sndChannelVO.getLocalCharset()), route.tlgrmId, route.MsgKey));
 					}
-				//1.2. 단방향 미응답 처리
-				} else {
-					log.error(LoggingFormat.format(channelVO.getChnlId(), "SND IGNR", bytearray, channelVO.getRemoteCharset()));
+					event.convertNanos = event.lap();
+					event.end(channelVO.getChnlId(), route.tlgrmId, route.MsgKey);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * 수신 메시지의 응답 대상 내부채널 조회(실행기에서 동작)
+	 * <p>재적재로 전문 키 위치가 바뀐 경우 이전 버전으로 해석한 키가 redis 에 등록되어 있으면 해당 버전으로 응답합니다.</p>
+	 * @param candidates 해석 대상 채널 정보 객체 목록(첫번째는 현재 버전)
+	 * @param bytearray 수신 메시지
+	 * @param event 처리 단계 측정 이벤트
+	 * @return 응답 대상, 응답하지 않을 시 채널은 null
+	 */
+	private Route route(List<ChannelVO> candidates, byte[] bytearray, OnlineClientEvents.ResponseEvent event) {
+		RedisService redisService = OnlineClientOffload.redisService();
+		Route route = null;
+		//1. redis에 등록 여부 체크(전송시 등록)
+		for(ChannelVO candidate : candidates) {
+			Route next = new Route(candidate, bytearray);
+			if(redisService.nullString(next.key)) {
+				route = next;
+				break;
+			}
+		}
+		if(route != null) {
+			ChannelVO channelVO = route.channelVO;
+			String key = route.key;
+			Channel channel = null;
+			//1.1. 양방향일시 만 응답 전송
+			if(redisService.isRedis(key)) {
+				//1.1.1. redis를 이용하여 수신 받은 내부채널 조회
+				String channelId = redisService.getRedis(key);
+				//1.1.2. redis 삭제
+				redisService.delRedis(key);
+				event.redisNanos = event.lap();
+				channel = ChannelManager.getRcvChannel(channelId);
+				event.routeNanos = event.lap();
+				event.outcome = "ROUTED";
+				//1.1.3. 채널이 없거나 종료 되었을 시 
+				if(channel == null || !channel.isActive()) {
+					log.error(LoggingFormat.format(channelVO.getChnlId(), "Not connected to local channel. Message", bytearray, channelVO.getRemoteCharset()));
+					event.outcome = "NOT CONNECTED";
+					channel = null;
 				}
-				//1.3. redis 삭제
-				redisService.delRedis(TextUtil.concat(channelVO.getChnlId(), MsgKey));
-			//2. 기응답 or 타임아웃일 시
+			//1.2. 단방향 미응답 처리
 			} else {
-				log.error(LoggingFormat.format(channelVO.getChnlId(), "SND SKIP", bytearray, channelVO.getRemoteCharset()));
+				//1.2.1. redis 삭제
+				redisService.delRedis(key);
+				event.redisNanos = event.lap();
+				event.outcome = "SND IGNR";
+				log.error(LoggingFormat.format(channelVO.getChnlId(), "SND IGNR", bytearray, channelVO.getRemoteCharset()));
 			}
+			route.channel = channel;
+		//2. 기응답 or 타임아웃일 시
+		} else {
+			route = new Route(candidates.get(0), bytearray);
+			event.redisNanos = event.lap();
+			event.outcome = "SND SKIP";
+			log.error(LoggingFormat.format(route.channelVO.getChnlId(), "SND SKIP", bytearray, route.channelVO.getRemoteCharset()));
+		}
+		return route;
+	}
+
+	/**
+	 * 수신 메시지 응답 대상 정보
+	 */
+	private static final class Route {
+		/** 송신 시점의 채널 정보 객체 */
+		private final ChannelVO channelVO;
+		/** 전문아이디 */
+		private final String tlgrmId;
+		/** 메시지 키 */
+		private final String MsgKey;
+		/** 키정보 */
+		private final String key;
+		/** 응답 대상 내부채널 */
+		private Channel channel;
+
+		/**
+		 * 생성자
+		 * @param channelVO 채널 정보 객체
+		 * @param bytearray 수신 메시지
+		 */
+		Route(ChannelVO channelVO, byte[] bytearray) {
+			this.channelVO = channelVO;
+			this.tlgrmId = TextUtil.substringB(bytearray, channelVO.getTlgrmIdSrtPt(), channelVO.getTlgrmIdLen(), channelVO.getRemoteCharset());
+			this.MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getRemoteCharset());
+			this.key = TextUtil.concat(channelVO.getChnlId(), MsgKey);
 		}
 	}
 
@@ -121,6 +233,7 @@ public class OnlineClientTcpSndHandler extends SimpleChannelInboundHandler<Objec
 	 */
 	@Override
 	public void channelInactive(final ChannelHandlerContext ctx) {
+		session(ctx, false);
 		ChannelManager.removeSndChannelMap(channelVO.getChnlId(), chnlSeq);
 		log.info(LoggingFormat.formatSimple(channelVO.getChnlId(), "DISCONNECT", ctx.channel().remoteAddress()));
 	}
@@ -130,7 +243,8 @@ public class OnlineClientTcpSndHandler extends SimpleChannelInboundHandler<Objec
 	 */
 	@Override
 	public void channelUnregistered(final ChannelHandlerContext ctx) throws Exception {
-		if("tcp".equals(channelVO.getRemotePrtcl())) {
+		//재적재로 축소된 세션은 재접속하지 않음
+		if("tcp".equals(channelVO.getRemotePrtcl()) && isSession()) {
 			EventLoop loop = ctx.channel().eventLoop();
 			loop.schedule( new Runnable() {
 				@Override
@@ -162,18 +276,61 @@ public class OnlineClientTcpSndHandler extends SimpleChannelInboundHandler<Objec
 	 * @return idle 메시지
 	 */
 	public String getIdle() {
+		final ChannelVO channelVO = OnlineClientConfig.channelVO(this.channelVO);
+		OnlineClientConfig config = OnlineClientConfig.get(channelVO.getChnlId());
+		String tlgrmKey = TextUtil.concat(channelVO.getChnlId(), "I");
+		List<TelegramVO> fields = config == null ? null : config.current().fields(tlgrmKey);
+		if(fields == null) {
+			fields = ConstantFactory.tlgrmMap.get(tlgrmKey);
+		}
 		StringBuilder sb = new StringBuilder();
-		for(TelegramVO vo : ConstantFactory.tlgrmMap.get(TextUtil.concat(channelVO.getChnlId(), "I"))) {
+		for(TelegramVO vo : fields) {
 			sb.append(TextUtil.pad(vo.getFieldType(), (String) vo.getDefVal(), vo.getFieldLen(), channelVO.getRemoteCharset()));
 		}
 		return TextUtil.concat(TextUtil.padLeft(sb.toString().getBytes(channelVO.getRemoteCharset()).length, channelVO.getDataPfxLen(), channelVO.getRemoteCharset()), sb.toString());
 	}
 	
+	/**
+	 * 현재 설정의 세션 수 이내 여부
+	 * @return 세션 수 이내 여부
+	 */
+	private boolean isSession() {
+		return chnlSeq <= OnlineClientConfig.channelVO(channelVO).getSsnCnt();
+	}
+	
+	/**
+	 * 설정 모듈에 송신 세션 상태 확인 완료 등록
+	 * @param ctx 송신채널
+	 */
+	private void ready(ChannelHandlerContext ctx) {
+		OnlineClientConfig config = OnlineClientConfig.get(channelVO.getChnlId());
+		if(config != null) {
+			config.setReady(chnlSeq, ctx.channel());
+		}
+	}
+	
+	/**
+	 * 설정 모듈에 송신 세션 등록/삭제
+	 * @param ctx 송신채널
+	 * @param active 등록 여부
+	 */
+	private void session(ChannelHandlerContext ctx, boolean active) {
+		OnlineClientConfig config = OnlineClientConfig.get(channelVO.getChnlId());
+		if(config != null) {
+			if(active) {
+				config.setSession(chnlSeq, ctx.channel());
+			} else {
+				config.removeSession(chnlSeq, ctx.channel());
+			}
+		}
+	}
+	
 	/**
 	 * 클라이언트 재접속
 	 * @param loop 이벤트루프
 	 */
 	public void connect(final EventLoop loop) {
+		final ChannelVO channelVO = OnlineClientConfig.channelVO(this.channelVO);
 		NettyClientBootstrap client = new NettyClientBootstrap();
 		client.setWorkerGroup(loop);
 		client.setChannelVO(channelVO);
@@ -1,11 +1,13 @@
 package com.tm.online;
 
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import com.tm.db.app.vo.ChannelVO;
-import com.tm.service.RedisService;
-import com.tm.utils.BeanUtil;
+import com.tm.logging.LoggingFormat;
 import com.tm.utils.TextUtil;
 
 import io.netty.buffer.ByteBuf;
@@ -16,7 +18,10 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.ScheduledFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,22 +41,54 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 	/** 채널 정보 객체 */
 	private final ChannelVO channelVO;
 	
-	/** redis 서비스 */
-	private RedisService redisService = (RedisService) BeanUtil.getBean("redisService");
-
 	/** 재송신 스케줄 정보 */
 	private final LinkedHashMap<String, ScheduledFuture<?>> tmTask = new LinkedHashMap<>();
 
 	/** 재송신 스케줄 정보 */
 	private final LinkedHashMap<String, Integer> tmTaskCnt = new LinkedHashMap<>();
 
+	/** 최초 송신 시각 정보 */
+	private final LinkedHashMap<String, Long> tmSndTime = new LinkedHashMap<>();
+
+	/** 최종 타임아웃 시각 정보(최초 수신 기준 rcvTimeout * (reTryCnt + 1)) */
+	private final LinkedHashMap<String, Long> tmDeadline = new LinkedHashMap<>();
+
+	/** 동시 송신 한도 대기 정보 */
+	private final LinkedHashMap<String, PendingWrite> tmPending = new LinkedHashMap<>();
+
+	/** 최초 송신 시점의 채널 정보(응답 해석 및 재송신에 사용) */
+	private final LinkedHashMap<String, ChannelVO> tmChannelVO = new LinkedHashMap<>();
+
+	/** 왕복 측정 이벤트 정보(JFR 활성 시) */
+	private final LinkedHashMap<String, OnlineClientEvents.RoundTripEvent> tmEvent = new LinkedHashMap<>();
+
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 		if (msg instanceof ByteBuf) {
-			if (channelVO.getRcvTimeout() > 0) {
+			if (OnlineClientConfig.channelVO(this.channelVO).getRcvTimeout() > 0 || !tmChannelVO.isEmpty()) {
 				final byte[] bytearray = ByteBufUtil.getBytes(((ByteBuf) msg));
+				//송신 시점의 설정 스냅샷
+				final ChannelVO channelVO = snapshot(bytearray);
 				final String MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getRemoteCharset());
-				destroy(TextUtil.concat(channelVO.getChnlId(), MsgKey));
+				final String key = TextUtil.concat(channelVO.getChnlId(), MsgKey);
+				OnlineClientEvents.RoundTripEvent roundTrip = tmEvent.remove(key);
+				if (roundTrip != null) {
+					roundTrip.retryCnt = cnt(key);
+					roundTrip.rtoNanos = controller().getRto();
+					roundTrip.end(channelVO.getChnlId(), roundTrip.tlgrmId, MsgKey);
+				}
+				tmDeadline.remove(key);
+				tmChannelVO.remove(key);
+				Long sndTime = tmSndTime.remove(key);
+				if (sndTime != null) {
+					//재송신 건은 응답시간 표본에서 제외(Karn)
+					if (cnt(key) == 0) {
+						controller().onResponse(System.nanoTime() - sndTime);
+					} else {
+						controller().release();
+					}
+				}
+				destroy(key);
 			}
 		}
 		super.channelRead(ctx, msg);
@@ -61,16 +98,35 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 	public void write(final ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
 		//핸들러가 읽기 시간 초과 이벤트에 대해서만 구성된 경우 void promise로 쓰기를 허용합니다.
 		if (msg instanceof ByteBuf) {
-			if (channelVO.getRcvTimeout() > 0) {
+			if (OnlineClientConfig.channelVO(this.channelVO).getRcvTimeout() > 0) {
 				final byte[] bytearray = ByteBufUtil.getBytes(((ByteBuf) msg));
+				//메시지 단위 설정 스냅샷(재송신은 최초 송신 시점의 스냅샷)
+				final ChannelVO channelVO = snapshot(bytearray);
 				final String MsgKey = TextUtil.substringB(bytearray, channelVO.getMsgKeySrtPt(), channelVO.getMsgKeyLen(), channelVO.getRemoteCharset());
+				final String key = TextUtil.concat(channelVO.getChnlId(), MsgKey);
+				final OnlineClientEvents.OutboundWriteEvent event = new OnlineClientEvents.OutboundWriteEvent();
+				event.start();
+				final String tlgrmId = event.isEnabled() ? TextUtil.substringB(bytearray, channelVO.getTlgrmIdSrtPt(), channelVO.getTlgrmIdLen(), channelVO.getRemoteCharset()) : null;
 
-				ChannelPromise unvoid = promise.unvoid();
-				ctx.write(msg, unvoid).addListener(new ChannelFutureListener() {
-					public void operationComplete(ChannelFuture future) throws Exception {
-						initialize(ctx, TextUtil.concat(channelVO.getChnlId(), MsgKey), bytearray);
+				//최초 송신 시 동시 송신 한도 체크(재송신은 제외), 한도 초과 시 최종 타임아웃까지 대기 후 송신
+				if (!tmSndTime.containsKey(key) && !tmPending.containsKey(key)) {
+					tmDeadline.put(key, System.nanoTime() + TimeUnit.SECONDS.toNanos(channelVO.getRcvTimeout()) * (channelVO.getReTryCnt() + 1));
+					tmChannelVO.put(key, channelVO);
+					PendingWrite pending = new PendingWrite(ctx, msg, promise, channelVO, key, MsgKey, tlgrmId, bytearray, event);
+					switch (controller().acquire(pending)) {
+					case HELD:
+						hold(pending);
+						return;
+					case REJECTED:
+						tmDeadline.remove(key);
+						tmChannelVO.remove(key);
+						pending.drop("SND LIMIT");
+						return;
+					default:
+						begin(key, MsgKey, tlgrmId);
 					}
-				});
+				}
+				send(ctx, msg, promise, channelVO, key, MsgKey, tlgrmId, bytearray, event);
 			} else {
 				ctx.write(msg, promise);
 			}
@@ -79,6 +135,131 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 		}
 	}
 	
+	/**
+	 * 최초 송신 정보 세팅
+	 * @param key 키정보
+	 * @param MsgKey 메시지 키
+	 * @param tlgrmId 전문아이디
+	 */
+	private void begin(String key, String MsgKey, String tlgrmId) {
+		tmSndTime.put(key, System.nanoTime());
+		OnlineClientEvents.RoundTripEvent roundTrip = new OnlineClientEvents.RoundTripEvent();
+		roundTrip.start();
+		if (roundTrip.isEnabled()) {
+			roundTrip.tlgrmId = tlgrmId;
+			roundTrip.msgKey = MsgKey;
+			tmEvent.put(key, roundTrip);
+		}
+	}
+
+	/**
+	 * 송신 및 타임아웃 세팅
+	 * @param ctx 송신채널
+	 * @param msg 메시지 객체
+	 * @param promise 송신 promise
+	 * @param channelVO 채널 정보 객체
+	 * @param key 키정보
+	 * @param MsgKey 메시지 키
+	 * @param tlgrmId 전문아이디
+	 * @param bytearray 전문
+	 * @param event 송신 측정 이벤트
+	 */
+	private void send(final ChannelHandlerContext ctx, Object msg, ChannelPromise promise, final ChannelVO channelVO, final String key,
+			final String MsgKey, final String tlgrmId, final byte[] bytearray, final OnlineClientEvents.OutboundWriteEvent event) {
+		ChannelPromise unvoid = promise.unvoid();
+		ctx.write(msg, unvoid).addListener(new ChannelFutureListener() {
+			public void operationComplete(ChannelFuture future) throws Exception {
+				event.end(channelVO.getChnlId(), tlgrmId, MsgKey);
+				initialize(ctx, channelVO, key, bytearray);
+			}
+		});
+	}
+
+	/**
+	 * 동시 송신 한도 대기 세팅(최종 타임아웃 시각까지 대기)
+	 * @param pending 대기 정보
+	 */
+	private void hold(final PendingWrite pending) {
+		tmPending.put(pending.key, pending);
+		long remain = Math.max(deadline(pending.key) - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(1));
+		pending.expire = pending.ctx.executor().schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (tmPending.remove(pending.key) == pending) {
+					//이미 한도가 할당된 경우 할당 객체 실행 시 반환
+					controller().cancel(pending);
+					tmDeadline.remove(pending.key);
+					tmChannelVO.remove(pending.key);
+					pending.drop("SND TIMEOUT");
+				}
+			}
+		}, remain, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 동시 송신 한도 대기 정보
+	 */
+	@RequiredArgsConstructor
+	private final class PendingWrite implements Runnable {
+		/** 채널 Context 객체 */
+		private final ChannelHandlerContext ctx;
+		/** 메시지 객체 */
+		private final Object msg;
+		/** 송신 promise */
+		private final ChannelPromise promise;
+		/** 채널 정보 객체 */
+		private final ChannelVO channelVO;
+		/** 키정보 */
+		private final String key;
+		/** 메시지 키 */
+		private final String MsgKey;
+		/** 전문아이디 */
+		private final String tlgrmId;
+		/** 전문 */
+		private final byte[] bytearray;
+		/** 송신 측정 이벤트 */
+		private final OnlineClientEvents.OutboundWriteEvent event;
+		/** 대기 만료 스케줄 */
+		private ScheduledFuture<?> expire;
+
+		/**
+		 * 송신 한도 할당 시 실행(할당한 스레드에서 호출되므로 이벤트루프에서 송신 재개)
+		 */
+		public void run() {
+			ctx.executor().execute(new Runnable() {
+				@Override
+				public void run() {
+					//만료 또는 채널 종료로 대기가 해제된 경우 할당된 한도 반환
+					if (tmPending.remove(key) != PendingWrite.this) {
+						controller().release();
+						return;
+					}
+					expire.cancel(false);
+					begin(key, MsgKey, tlgrmId);
+					send(ctx, msg, promise, channelVO, key, MsgKey, tlgrmId, bytearray, event);
+					//호출측 flush 는 대기 중 이미 지나갔으므로 재개 시 직접 flush
+					ctx.flush();
+				}
+			});
+		}
+
+		/**
+		 * 송신 포기(목적지 미송신이므로 redis 삭제)
+		 * @param reason 사유
+		 */
+		private void drop(final String reason) {
+			OnlineClientOffload.get(channelVO).execute(key, new Runnable() {
+				@Override
+				public void run() {
+					log.error(LoggingFormat.format(channelVO.getChnlId(), reason, bytearray, channelVO.getRemoteCharset()));
+					OnlineClientOffload.redisService().delRedis(key);
+				}
+			});
+			ReferenceCountUtil.release(msg);
+			promise.tryFailure(new RejectedExecutionException(reason + " concurrency limit: " + controller().getLimit()));
+		}
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 		destroy();
@@ -94,15 +275,19 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 	/**
 	 * 타임아웃 초기화 세팅
 	 * @param ctx 송신채널
+	 * @param channelVO 최초 송신 시점의 채널 정보 객체
 	 * @param key 키정보
 	 * @param message 메시지 객체
 	 */
-	private void initialize(ChannelHandlerContext ctx, String key, Object message) {
+	private void initialize(ChannelHandlerContext ctx, ChannelVO channelVO, String key, Object message) {
 		int cnt = cnt(key);
 		destroy(key);
-		long timeoutNanoSeconds = Math.max(TimeUnit.SECONDS.toNanos(channelVO.getRcvTimeout()), TimeUnit.MILLISECONDS.toNanos(1));
+		//재송신 간격만 응답시간 기반으로 조정하고, 마지막 시도는 최종 타임아웃 시각까지 대기
+		long remain = deadline(key) - System.nanoTime();
+		long timeoutNanoSeconds = cnt < channelVO.getReTryCnt() ? Math.min(controller().getRto(), remain) : remain;
+		timeoutNanoSeconds = Math.max(timeoutNanoSeconds, TimeUnit.MILLISECONDS.toNanos(1));
 		EventExecutor loop = ctx.channel().eventLoop();
-		ScheduledFuture<?> future = loop.schedule(new ClientTimeoutTask(ctx, key, message), timeoutNanoSeconds, TimeUnit.NANOSECONDS);
+		ScheduledFuture<?> future = loop.schedule(new ClientTimeoutTask(ctx, channelVO, key, message), timeoutNanoSeconds, TimeUnit.NANOSECONDS);
 		tmTask.put(key, future);
 		tmTaskCnt.put(key, cnt);
 	}
@@ -114,6 +299,8 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 	private final class ClientTimeoutTask implements Runnable {
 		/** 채널 Context 객체 */
 		private final ChannelHandlerContext ctx;
+		/** 최초 송신 시점의 채널 정보 객체 */
+		private final ChannelVO channelVO;
 		/** 키정보 */
 		private final String key;
 		/** 메시지 객체 */
@@ -123,24 +310,49 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 		 * 스레드 시작
 		 */
 		public void run() {
-			//전송 건수 값 체크
-			if(redisService.nullString(key)) {
-				//전송 건수 값
-				int cnt = tmTaskCnt.get(key);
-				if( cnt < channelVO.getReTryCnt()) {
-					cnt++;
-					tmTaskCnt.put(key, cnt);
-					//이벤트 호출
-					ctx.fireUserEventTriggered(message);
-				} else {
-					log.error("[Channel: {}] SND TIMEOUT: {}", channelVO.getChnlId(), new String((byte[]) message, channelVO.getRemoteCharset()));
-					//redis 삭제
-					redisService.delRedis(key);
-					destroy(key);
+			//전송 건수 값 체크(redis 조회는 실행기에서 처리 후 이벤트루프에서 재개)
+			OnlineClientOffload.get(channelVO).submit(ctx, key, new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return OnlineClientOffload.redisService().nullString(key);
 				}
-			} else {
-				destroy(key);
-			}
+			}).addListener(new FutureListener<Boolean>() {
+				@Override
+				public void operationComplete(Future<Boolean> future) throws Exception {
+					//조회 중 응답 수신 또는 채널 종료 시
+					if (!tmTask.containsKey(key)) {
+						return;
+					}
+					if (!future.isSuccess()) {
+						log.error(LoggingFormat.formatSimple(channelVO.getChnlId(), "REDIS FAIL", future.cause()));
+						complete(key, false);
+					} else if (future.getNow()) {
+						controller().onTimeout();
+						//전송 건수 값
+						int cnt = tmTaskCnt.get(key);
+						if( cnt < channelVO.getReTryCnt() && System.nanoTime() < deadline(key)) {
+							cnt++;
+							tmTaskCnt.put(key, cnt);
+							//이벤트 호출
+							ctx.fireUserEventTriggered(message);
+						} else {
+							OnlineClientOffload.get(channelVO).execute(key, new Runnable() {
+								@Override
+								public void run() {
+									log.error("[Channel: {}] SND TIMEOUT: {}", channelVO.getChnlId(), new String((byte[]) message, channelVO.getRemoteCharset()));
+									//redis 삭제
+									OnlineClientOffload.redisService().delRedis(key);
+								}
+							});
+							//송수신 기록 저장(redis 실행기를 점유하지 않도록 저장 전용 스레드에서 처리)
+							OnlineClientFlightRecorder.anomaly(channelVO, "SND TIMEOUT");
+							complete(key, true);
+						}
+					} else {
+						complete(key, false);
+					}
+				}
+			});
 		}
 	}
 	
@@ -169,6 +381,40 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 		}
 	}
 	
+	/**
+	 * 타입아웃 재전송 종료 및 송신중 건수 반환
+	 * @param key 키정보
+	 * @param timeout 최종 타임아웃 여부
+	 */
+	private void complete(String key, boolean timeout) {
+		OnlineClientEvents.RoundTripEvent roundTrip = tmEvent.remove(key);
+		if (roundTrip != null) {
+			roundTrip.retryCnt = cnt(key);
+			roundTrip.timeout = timeout;
+			roundTrip.rtoNanos = controller().getRto();
+			roundTrip.end(channelVO.getChnlId(), roundTrip.tlgrmId, roundTrip.msgKey);
+		}
+		tmDeadline.remove(key);
+		tmChannelVO.remove(key);
+		if (tmSndTime.remove(key) != null) {
+			controller().release();
+		}
+		destroy(key);
+	}
+
+	/**
+	 * 최종 타임아웃 시각 조회
+	 * @param key 키정보
+	 * @return 최종 타임아웃 시각(ns)
+	 */
+	private long deadline(String key) {
+		Long deadline = tmDeadline.get(key);
+		if (deadline == null) {
+			return System.nanoTime() + TimeUnit.SECONDS.toNanos(channelVO.getRcvTimeout());
+		}
+		return deadline;
+	}
+	
 	/**
 	 * 타입아웃 전체 스레드 종료 
 	 */
@@ -176,5 +422,46 @@ public class OnlineClientTimeoutHandler extends ChannelDuplexHandler {
 		for (String key : tmTask.keySet()) {
 			tmTask.get(key).cancel(true);
 		}
+		for (int i = 0; i < tmSndTime.size(); i++) {
+			controller().release();
+		}
+		tmSndTime.clear();
+		tmEvent.clear();
+		tmDeadline.clear();
+		tmChannelVO.clear();
+		//대기중 송신 해제(이미 한도가 할당된 경우 할당 객체 실행 시 반환)
+		for (PendingWrite pending : tmPending.values()) {
+			pending.expire.cancel(false);
+			controller().cancel(pending);
+			ReferenceCountUtil.release(pending.msg);
+			pending.promise.tryFailure(new RejectedExecutionException("channel closed"));
+		}
+		tmPending.clear();
+	}
+	
+	/**
+	 * 메시지의 설정 스냅샷 조회
+	 * <p>재적재로 전문 키 위치가 바뀐 경우, 이전 버전으로 해석한 키가 송신중이면 해당 버전을 사용합니다.</p>
+	 * @param bytearray 전문
+	 * @return 최초 송신 시점의 채널 정보 객체, 송신중이 아니면 현재 버전
+	 */
+	private ChannelVO snapshot(byte[] bytearray) {
+		List<ChannelVO> candidates = OnlineClientConfig.candidates(this.channelVO);
+		for (ChannelVO candidate : candidates) {
+			String key = TextUtil.concat(candidate.getChnlId(), TextUtil.substringB(bytearray, candidate.getMsgKeySrtPt(), candidate.getMsgKeyLen(), candidate.getRemoteCharset()));
+			ChannelVO channelVO = tmChannelVO.get(key);
+			if (channelVO != null) {
+				return channelVO;
+			}
+		}
+		return candidates.get(0);
+	}
+
+	/**
+	 * 목적지별 타임아웃/송신 한도 제어 객체 조회
+	 * @return 제어 객체
+	 */
+	private OnlineClientAdaptiveController controller() {
+		return OnlineClientAdaptiveController.get(OnlineClientConfig.channelVO(channelVO));
 	}
 }